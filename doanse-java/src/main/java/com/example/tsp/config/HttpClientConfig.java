@@ -0,0 +1,24 @@
+package com.example.tsp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Configuration
+public class HttpClientConfig {
+
+    /**
+     * Shared non-blocking client for Nominatim and OSRM. It keeps connections
+     * alive between calls, so repeated requests to the same host reuse them.
+     */
+    @Bean
+    public HttpClient httpClient(@Value("${tsp.http.connect-timeout-ms:3000}") long connectTimeoutMs) {
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.tsp.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class SolverExecutorConfig {
+
+    /**
+     * Shared pool for CPU-bound solver work (cluster sub-problems, parallel searches).
+     * Sized to the number of cores unless tsp.solver.threads is set.
+     * Queue depth and active threads are exported so batch load is visible.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool solverExecutor(@Value("${tsp.solver.threads:0}") int threads, MeterRegistry registry) {
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Gauge.builder("tsp.solver.pool.queued", pool, p -> p.getQueuedSubmissionCount() + p.getQueuedTaskCount())
+                .description("Solver tasks waiting for a thread")
+                .register(registry);
+        Gauge.builder("tsp.solver.pool.active", pool, ForkJoinPool::getActiveThreadCount)
+                .description("Solver threads currently running a task")
+                .register(registry);
+        return pool;
+    }
+}
@@ -1,18 +1,50 @@
 package com.example.tsp.controller;
 
 import com.example.tsp.model.*;
+import com.example.tsp.service.AcoSolver;
+import com.example.tsp.service.AutoSolver;
+import com.example.tsp.service.BatchSolveService;
+import com.example.tsp.service.ConstructionService;
+import com.example.tsp.service.CsvStopReader;
+import com.example.tsp.service.DecompositionSolver;
+import com.example.tsp.service.GeneticSolver;
+import com.example.tsp.service.GapTarget;
 import com.example.tsp.service.GeocodingService;
+import com.example.tsp.service.LowerBoundService;
+import com.example.tsp.service.OutboundHttpClient;
+import com.example.tsp.service.Polyline;
 import com.example.tsp.service.RoutingService;
+import com.example.tsp.service.SolutionCache;
 import com.example.tsp.service.SolverService;
+import com.example.tsp.service.SolverTrace;
+import com.example.tsp.service.TspMetrics;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Controller
 @RequiredArgsConstructor
 public class TspController {
@@ -20,7 +52,39 @@ public class TspController {
     private final GeocodingService geocodingService;
     private final RoutingService routingService;
     private final SolverService solverService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DecompositionSolver decompositionSolver;
+    private final ConstructionService constructionService;
+    private final GeneticSolver geneticSolver;
+    private final AcoSolver acoSolver;
+    private final AutoSolver autoSolver;
+    private final LowerBoundService lowerBoundService;
+    private final BatchSolveService batchSolveService;
+    private final SolutionCache solutionCache;
+    private final TspMetrics metrics;
+    private final ObjectMapper objectMapper;
+    private final ForkJoinPool solverExecutor;
+
+    private static final String UPLOAD_ID = "upload";
+
+    @Value("${tsp.trace.enabled:false}")
+    private boolean traceEnabled;
+
+    @Value("${tsp.decomposition.threshold:300}")
+    private int decompositionThreshold;
+
+    @Value("${tsp.construction.indexed-threshold:500}")
+    private int indexedConstructionThreshold;
+
+    @Value("${tsp.batch.timeout-ms:300000}")
+    private long batchTimeoutMs;
+
+    // Uploads geocode every row (one Nominatim request at a time), so they may run much longer
+    @Value("${tsp.upload.timeout-ms:3600000}")
+    private long uploadTimeoutMs;
+
+    // Each row costs a Nominatim lookup and grows the n x n matrices, so uploads are capped
+    @Value("${tsp.upload.max-stops:1000}")
+    private int uploadMaxStops;
 
     @GetMapping("/")
     public String home(Model model) {
@@ -34,9 +98,15 @@ public class TspController {
         return "index";
     }
 
+    /**
+     * Geocoding, the OSRM matrix and solving are chained asynchronously (solvers run
+     * on the solver pool), so no servlet thread waits on upstream retries.
+     */
     @PostMapping("/")
-    public String solve(@RequestParam Map<String, String> allParams, Model model) {
+    public CompletableFuture<String> solve(@RequestParam Map<String, String> allParams, Model model) {
+        Timer.Sample requestSample = metrics.startTimer();
         String mode = allParams.getOrDefault("mode", "distance");
+        boolean trace = traceEnabled || "on".equals(allParams.get("trace"));
         String warehouseAddress = allParams.get("warehouse_address");
 
         List<String> allAddressesText = new ArrayList<>();
@@ -77,19 +147,57 @@ public class TspController {
                 .mode(mode)
                 .build();
 
-        try {
-            if (deliveryPointsInput.isEmpty())
-                throw new IllegalArgumentException("Vui lòng nhập ít nhất một điểm giao hàng.");
-
-            List<AddressData> allAddressesData = new ArrayList<>();
-            for (String addr : allAddressesText) {
-                AddressData ad = geocodingService.getCoordsFromAddress(addr);
-                if (ad == null)
-                    throw new IllegalArgumentException("Không thể tìm tọa độ cho địa chỉ: " + addr);
-                allAddressesData.add(ad);
+        CompletableFuture<Void> work;
+        if (deliveryPointsInput.isEmpty()) {
+            work = CompletableFuture.failedFuture(
+                    new IllegalArgumentException("Vui lòng nhập ít nhất một điểm giao hàng."));
+        } else {
+            work = geocodingService.getCoordsFromAddressesAsync(allAddressesText).thenCompose(geocoded -> {
+                List<AddressData> allAddressesData = new ArrayList<>();
+                for (String addr : allAddressesText) {
+                    AddressData ad = geocoded.get(addr);
+                    if (ad == null)
+                        throw new IllegalArgumentException("Không thể tìm tọa độ cho địa chỉ: " + addr);
+                    allAddressesData.add(ad);
+                }
+                return solveLocated(allAddressesData, allParams, mode, trace, timeWindows, formData, model);
+            });
+        }
+
+        return work.handle((ignored, ex) -> {
+            String outcome = "ok";
+            if (ex != null) {
+                Throwable cause = OutboundHttpClient.unwrap(ex);
+                outcome = "error";
+                log.error("Solve request failed", cause);
+                model.addAttribute("error", cause.getMessage());
             }
+            metrics.recordRequest(requestSample, "solve", mode, outcome);
+            model.addAttribute("form_data", formData);
+            return "index";
+        });
+    }
 
-            RoutingService.RoutingMatrix matrix = routingService.getRouteInfo(allAddressesData);
+    // Serves from the cache, or fetches the matrix and runs the solvers on the solver pool; fills the model
+    private CompletableFuture<Void> solveLocated(List<AddressData> allAddressesData, Map<String, String> allParams,
+            String mode, boolean trace, List<SolverService.TimeWindow> timeWindows, FormData formData, Model model) {
+        // Traced runs are diagnostics and always recompute
+        boolean schedule = "schedule".equals(mode);
+        String startTimeStr = allParams.get("start_time");
+        String cacheKey = trace ? null
+                : SolutionCache.fingerprint(allAddressesData, mode, timeWindows,
+                        schedule ? solverService.timeStrToSeconds(startTimeStr) : null);
+        String stopsKey = SolutionCache.stopsFingerprint(allAddressesData, mode);
+        CachedSolution cached = cacheKey != null ? solutionCache.get(cacheKey) : null;
+
+        if (cached != null) {
+            if (schedule)
+                formData.setStartTime(startTimeStr);
+            showSolution(model, cached, allAddressesData);
+            model.addAttribute("from_cache", true);
+            return CompletableFuture.completedFuture(null);
+        }
+        return routingService.getCombinedRouteInfoAsync(allAddressesData).thenAcceptAsync(matrix -> {
             if (matrix == null)
                 throw new RuntimeException("Không thể lấy dữ liệu từ OSRM API.");
 
@@ -97,11 +205,14 @@ public class TspController {
             double[][] durMatrix = matrix.getDurations();
 
             if ("schedule".equals(mode)) {
-                String startTimeStr = allParams.get("start_time");
                 formData.setStartTime(startTimeStr);
 
-                SolverService.TSPTWResult result = solverService.runSaSolverForTsptw(
-                        distMatrix, durMatrix, timeWindows, solverService.timeStrToSeconds(startTimeStr));
+                List<Integer> warmStart = solutionCache.warmStart(stopsKey);
+                SolverService.TSPTWResult result = metrics.timeSolver(
+                        solverService.isExactTsptw(distMatrix.length) ? "dp_tsptw" : "sa_tsptw",
+                        distMatrix.length,
+                        () -> solverService.solveTsptw(distMatrix, durMatrix, timeWindows,
+                                solverService.timeStrToSeconds(startTimeStr), warmStart));
 
                 List<AddressData> finalPath = new ArrayList<>();
                 for (int i = 0; i < result.path.size(); i++) {
@@ -126,13 +237,17 @@ public class TspController {
                     }
                 }
 
-                model.addAttribute("result_tsptw", finalPathWithSchedule);
-                model.addAttribute("distance_km", result.distance / 1000.0);
-                model.addAttribute("duration_sec", result.cost);
-                model.addAttribute("all_addresses_data", allAddressesData);
+                CachedSolution solution = new CachedSolution(null, finalPathWithSchedule,
+                        result.distance / 1000.0, result.cost, result.path);
+                if (cacheKey != null)
+                    solutionCache.put(cacheKey, stopsKey, solution);
+                showSolution(model, solution, allAddressesData);
 
             } else {
                 List<RouteResult> results = new ArrayList<>();
+                // Lower bound runs on the solver pool next to the searches, which stop at the gap target
+                CompletableFuture<Double> bound = lowerBoundService.startAsync(distMatrix);
+                GapTarget gapTarget = lowerBoundService.gapTarget(bound);
 
                 long start, end;
 
@@ -144,53 +259,112 @@ public class TspController {
 
                 if ("astar".equals(mode)) {
                     start = System.currentTimeMillis();
-                    List<Integer> aStarPath = solverService.runAStarSolver(distMatrix);
+                    List<Integer> aStarPath = metrics.timeSolver("astar", distMatrix.length,
+                            () -> solverService.runAStarSolver(distMatrix));
                     end = System.currentTimeMillis();
                     results.add(
                             buildResult("A* Search (Optimal)", aStarPath, allAddressesData, distMatrix, end - start));
+                } else if ("genetic".equals(mode)) {
+                    start = System.currentTimeMillis();
+                    List<Integer> gaPath = metrics.timeSolver("genetic", distMatrix.length,
+                            () -> geneticSolver.solve(distMatrix, gapTarget));
+                    end = System.currentTimeMillis();
+                    results.add(buildResult("Genetic Algorithm (Islands + 2-Opt)", gaPath, allAddressesData,
+                            distMatrix, end - start));
+                } else if ("aco".equals(mode)) {
+                    start = System.currentTimeMillis();
+                    List<Integer> acoPath = metrics.timeSolver("aco", distMatrix.length,
+                            () -> acoSolver.solve(distMatrix, gapTarget));
+                    end = System.currentTimeMillis();
+                    results.add(buildResult("Ant Colony (MAX-MIN)", acoPath, allAddressesData, distMatrix,
+                            end - start));
+                } else if ("auto".equals(mode)) {
+                    // Only the strategy the table picks for this instance profile
+                    SolverStrategy strategy = autoSolver.choose(autoSolver.profile(distMatrix, null));
+                    start = System.currentTimeMillis();
+                    List<Integer> autoPath = metrics.timeSolver(strategy.getAlgorithm(), distMatrix.length,
+                            () -> autoSolver.run(strategy, allAddressesData, distMatrix, gapTarget));
+                    end = System.currentTimeMillis();
+                    results.add(buildResult("Auto: " + AutoSolver.displayName(strategy), autoPath,
+                            allAddressesData, distMatrix, end - start));
                 } else {
-                    // NN + 2-Opt
+                    // NN + 2-Opt (on large instances: greedy edge start from the spatial index,
+                    // then neighbor-list 2-Opt/Or-opt on a two-level list tour)
+                    boolean indexed = distMatrix.length >= indexedConstructionThreshold;
                     start = System.currentTimeMillis();
-                    List<Integer> nnPath = solverService.runNearestNeighbor(distMatrix);
-                    List<Integer> twoOptPath = solverService.apply2Opt(nnPath, distMatrix);
+                    List<Integer> twoOptPath = metrics.timeSolver(indexed ? "greedy_2opt_oropt" : "nn_2opt",
+                            distMatrix.length,
+                            () -> indexed
+                                    ? solverService.apply2OptOrOpt(
+                                            constructionService.greedyEdge(allAddressesData, distMatrix), distMatrix)
+                                    : solverService.applyAsymmetricLocalSearch(
+                                            solverService.runNearestNeighbor(distMatrix), distMatrix));
                     end = System.currentTimeMillis();
 
-                    results.add(buildResult("NN + 2-Opt", twoOptPath, allAddressesData, distMatrix, end - start));
+                    results.add(buildResult(indexed ? "Greedy Edge + 2-Opt/Or-opt" : "NN + 2-Opt/Or-opt",
+                            twoOptPath, allAddressesData, distMatrix, end - start));
 
                     // NN + 3-Opt
+                    SolverTrace threeOptTrace = trace ? new SolverTrace("nn_3opt") : null;
                     start = System.currentTimeMillis();
-                    List<Integer> threeOptPath = solverService.run3Opt(distMatrix);
+                    List<Integer> threeOptPath = metrics.timeSolver("nn_3opt", distMatrix.length,
+                            () -> solverService.run3Opt(distMatrix, threeOptTrace, gapTarget));
                     end = System.currentTimeMillis();
-                    results.add(buildResult("NN + 3-Opt", threeOptPath, allAddressesData, distMatrix, end - start));
+                    results.add(withTrace(
+                            buildResult("NN + 3-Opt", threeOptPath, allAddressesData, distMatrix, end - start),
+                            threeOptTrace));
 
                     // SA
+                    SolverTrace saTrace = trace ? new SolverTrace("sa") : null;
                     start = System.currentTimeMillis();
-                    List<Integer> saPath = solverService.runSaSolver(distMatrix);
+                    List<Integer> saPath = metrics.timeSolver("sa", distMatrix.length,
+                            () -> solverService.runSaSolver(distMatrix, saTrace, gapTarget));
                     end = System.currentTimeMillis();
-                    results.add(buildResult("Simulated Annealing", saPath, allAddressesData, distMatrix, end - start));
+                    results.add(withTrace(
+                            buildResult("Simulated Annealing", saPath, allAddressesData, distMatrix, end - start),
+                            saTrace));
+
+                    // Large batches: cluster, solve clusters in parallel and stitch
+                    if (distMatrix.length >= decompositionThreshold) {
+                        start = System.currentTimeMillis();
+                        List<Integer> clusterPath = metrics.timeSolver("decomposition", distMatrix.length,
+                                () -> decompositionSolver.solve(allAddressesData, distMatrix));
+                        end = System.currentTimeMillis();
+                        results.add(buildResult("Cluster + 2-Opt (Parallel)", clusterPath, allAddressesData,
+                                distMatrix, end - start));
+                    }
 
                     // Also Comparison: Add A* if small enough
                     if (distMatrix.length <= 12) {
                         start = System.currentTimeMillis();
-                        List<Integer> aStarPath = solverService.runAStarSolver(distMatrix);
+                        List<Integer> aStarPath = metrics.timeSolver("astar", distMatrix.length,
+                                () -> solverService.runAStarSolver(distMatrix));
                         end = System.currentTimeMillis();
                         results.add(buildResult("A* Search (Optimal)", aStarPath, allAddressesData, distMatrix,
                                 end - start));
                     }
                 }
 
+                lowerBoundService.annotate(results, bound);
                 results.sort(Comparator.comparingDouble(RouteResult::getDistanceKm));
-                model.addAttribute("results", results);
-                model.addAttribute("all_addresses_data", allAddressesData);
+                CachedSolution solution = new CachedSolution(results, null, 0, 0, null);
+                if (cacheKey != null)
+                    solutionCache.put(cacheKey, stopsKey, solution);
+                showSolution(model, solution, allAddressesData);
             }
+        }, solverExecutor);
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            model.addAttribute("error", e.getMessage());
+    private void showSolution(Model model, CachedSolution solution, List<AddressData> allAddressesData) {
+        if (solution.getSchedulePath() != null) {
+            model.addAttribute("result_tsptw", solution.getSchedulePath());
+            model.addAttribute("distance_km", solution.getDistanceKm());
+            model.addAttribute("duration_sec", solution.getDurationSec());
+        } else {
+            model.addAttribute("results", solution.getResults());
         }
-
-        model.addAttribute("form_data", formData);
-        return "index";
+        model.addAttribute("all_addresses_data", allAddressesData);
+        model.addAttribute("stops_id", solutionCache.registerStops(allAddressesData));
     }
 
     private RouteResult buildResult(String name, List<Integer> indices, List<AddressData> allData,
@@ -207,79 +381,276 @@ public class TspController {
                 .build();
     }
 
+    private RouteResult withTrace(RouteResult result, SolverTrace trace) {
+        if (trace != null)
+            result.setTrace(trace.snapshot());
+        return result;
+    }
+
     @PostMapping("/reroute")
     @ResponseBody
-    public Object reroute(@RequestBody Map<String, Object> payload) {
+    public CompletableFuture<Object> reroute(@RequestBody Map<String, Object> payload) {
+        Timer.Sample requestSample = metrics.startTimer();
+        CompletableFuture<Object> result;
         try {
-            //
-            List<Map<String, Object>> addrMaps = (List<Map<String, Object>>) payload.get("all_addresses_data");
-            Map<String, String> avoidMap = (Map<String, String>) payload.get("avoid_segment");
-
-            if (addrMaps == null || avoidMap == null)
-                return Map.of("error", "Dữ liệu không hợp lệ");
-
-            List<AddressData> allAddressesData = new ArrayList<>();
-            for (Map<String, Object> m : addrMaps) {
-                AddressData ad = new AddressData();
-                ad.setDisplayName((String) m.get("display_name"));
-                ad.setLat(((Number) m.get("lat")).doubleValue());
-                ad.setLon(((Number) m.get("lon")).doubleValue());
-                allAddressesData.add(ad);
+            result = rerouteByName(payload);
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.handle((body, ex) -> {
+            if (ex == null) {
+                metrics.recordRequest(requestSample, "reroute", "distance", "ok");
+                return body;
             }
+            Throwable cause = OutboundHttpClient.unwrap(ex);
+            log.error("Reroute request failed", cause);
+            metrics.recordRequest(requestSample, "reroute", "distance", "error");
+            return Map.of("error", cause.getMessage());
+        });
+    }
 
-            RoutingService.RoutingMatrix matrix = routingService.getRouteInfo(allAddressesData);
-            if (matrix == null)
-                throw new RuntimeException("Connection Error OSRM");
+    // Legacy body: full stop list plus the leg to avoid given by display names
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Object> rerouteByName(Map<String, Object> payload) {
+        List<Map<String, Object>> addrMaps = (List<Map<String, Object>>) payload.get("all_addresses_data");
+        Map<String, String> avoidMap = (Map<String, String>) payload.get("avoid_segment");
+
+        if (addrMaps == null || avoidMap == null)
+            return CompletableFuture.completedFuture(Map.of("error", "Dữ liệu không hợp lệ"));
+
+        List<AddressData> allAddressesData = new ArrayList<>();
+        for (Map<String, Object> m : addrMaps) {
+            AddressData ad = new AddressData();
+            ad.setDisplayName((String) m.get("display_name"));
+            ad.setLat(((Number) m.get("lat")).doubleValue());
+            ad.setLon(((Number) m.get("lon")).doubleValue());
+            allAddressesData.add(ad);
+        }
 
-            double[][] distMatrix = matrix.getDistances();
+        // Find indices
+        int fromIdx = -1, toIdx = -1;
+        String fromName = avoidMap.get("from");
+        String toName = avoidMap.get("to");
 
-            // Find indices
-            int fromIdx = -1, toIdx = -1;
-            String fromName = avoidMap.get("from");
-            String toName = avoidMap.get("to");
+        for (int i = 0; i < allAddressesData.size(); i++) {
+            if (allAddressesData.get(i).getDisplayName().equals(fromName))
+                fromIdx = i;
+            if (allAddressesData.get(i).getDisplayName().equals(toName))
+                toIdx = i;
+        }
 
-            for (int i = 0; i < allAddressesData.size(); i++) {
-                if (allAddressesData.get(i).getDisplayName().equals(fromName))
-                    fromIdx = i;
-                if (allAddressesData.get(i).getDisplayName().equals(toName))
-                    toIdx = i;
-            }
+        if (fromIdx == -1 || toIdx == -1)
+            return CompletableFuture.completedFuture(Map.of("error", "Address not found"));
 
-            if (fromIdx == -1 || toIdx == -1)
-                return Map.of("error", "Address not found");
+        return rerouteAvoiding(allAddressesData, fromIdx, toIdx).thenApply(route -> route);
+    }
+
+    // New tour over the same stops that never drives directly fromIdx -> toIdx; solved on the solver pool
+    private CompletableFuture<RouteResult> rerouteAvoiding(List<AddressData> allAddressesData, int fromIdx,
+            int toIdx) {
+        return routingService.getCombinedRouteInfoAsync(allAddressesData)
+                .thenApplyAsync(matrix -> routeAvoiding(allAddressesData, matrix, fromIdx, toIdx), solverExecutor);
+    }
 
-            distMatrix[fromIdx][toIdx] = Double.POSITIVE_INFINITY;
+    private RouteResult routeAvoiding(List<AddressData> allAddressesData, RoutingService.RoutingMatrix matrix,
+            int fromIdx, int toIdx) {
+        if (matrix == null)
+            throw new RuntimeException("Connection Error OSRM");
 
-            List<Integer> initial = solverService.runNearestNeighbor(distMatrix);
-            List<Integer> finalPathIdx = solverService.apply2Opt(initial, distMatrix);
+        double[][] distMatrix = matrix.getDistances();
+        distMatrix[fromIdx][toIdx] = Double.POSITIVE_INFINITY;
 
-            double finalDist = solverService.calculateTotalDistance(finalPathIdx, distMatrix);
-            if (Double.isInfinite(finalDist))
-                throw new RuntimeException("No valid route found.");
+        List<Integer> finalPathIdx = metrics.timeSolver("nn_2opt", distMatrix.length,
+                () -> solverService.applyAsymmetricLocalSearch(solverService.runNearestNeighbor(distMatrix),
+                        distMatrix));
 
-            double totalDur = 0;
-            for (int i = 0; i < finalPathIdx.size() - 1; i++) {
-                totalDur += matrix.getDurations()[finalPathIdx.get(i)][finalPathIdx.get(i + 1)];
-            }
+        double finalDist = solverService.calculateTotalDistance(finalPathIdx, distMatrix);
+        if (Double.isInfinite(finalDist))
+            throw new RuntimeException("No valid route found.");
 
-            List<AddressData> finalPath = new ArrayList<>();
-            for (int i : finalPathIdx)
-                finalPath.add(allAddressesData.get(i));
+        double totalDur = 0;
+        for (int i = 0; i < finalPathIdx.size() - 1; i++) {
+            totalDur += matrix.getDurations()[finalPathIdx.get(i)][finalPathIdx.get(i + 1)];
+        }
+
+        List<AddressData> finalPath = new ArrayList<>();
+        for (int i : finalPathIdx)
+            finalPath.add(allAddressesData.get(i));
+
+        RouteResult res = new RouteResult();
+        res.setName("Tuyến đường thay thế");
+        res.setPath(finalPath);
+        res.setDistanceKm(finalDist / 1000.0);
+        res.setTour(finalPathIdx);
+        res.setStops(allAddressesData);
+
+        int h = (int) (totalDur / 3600);
+        int m = (int) ((totalDur % 3600) / 60);
+        res.setTotalDurationText(String.format("%02d giờ %02d phút", h, m));
+        return res;
+    }
+
+    /**
+     * Compact JSON counterpart of the form for mobile clients: solves one problem
+     * (same body as an /api/batch entry) and returns the tour as stop indices plus
+     * the stops as an encoded polyline, see {@link CompactRoute}.
+     */
+    @PostMapping("/api/solve")
+    @ResponseBody
+    public CompletableFuture<CompactRoute> solveCompact(@RequestBody RouteProblem problem) {
+        Timer.Sample requestSample = metrics.startTimer();
+        String mode = problem.getMode() != null ? problem.getMode() : "distance";
+        AtomicReference<BatchRouteResult> result = new AtomicReference<>();
+        return batchSolveService.solveAll(List.of(problem), result::set)
+                .thenApply(ignored -> result.get().getRoute() != null
+                        ? toCompact(result.get().getRoute(), true)
+                        : CompactRoute.builder().error(result.get().getError()).build())
+                .whenComplete((route, ex) -> metrics.recordRequest(requestSample, "api_solve", mode,
+                        ex == null && route.getError() == null ? "ok" : "error"));
+    }
+
+    /**
+     * Stops behind a stops_id, with display names. The id is derived from the
+     * content, so clients may cache the list.
+     */
+    @GetMapping("/api/stops/{id}")
+    @ResponseBody
+    public ResponseEntity<List<AddressData>> stops(@PathVariable String id) {
+        List<AddressData> stops = solutionCache.stops(id);
+        if (stops == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok().cacheControl(CacheControl.maxAge(Duration.ofDays(1))).body(stops);
+    }
 
-            RouteResult res = new RouteResult();
-            res.setName("Tuyến đường thay thế");
-            res.setPath(finalPath);
-            res.setDistanceKm(finalDist / 1000.0);
+    /**
+     * Compact /reroute: the stops are referenced by stops_id and the leg to avoid
+     * by index, and the new tour comes back as indices.
+     * <p>
+     * stops_id lives in the memory of the node that solved the route (and survives a
+     * restart only with tsp.cache.file). Without sticky sessions another node answers
+     * 404; clients then fall back to /reroute with the full stop list, like the page does.
+     */
+    @PostMapping("/api/reroute")
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<CompactRoute>> rerouteCompact(@RequestBody RerouteRequest request) {
+        Timer.Sample requestSample = metrics.startTimer();
+        CompletableFuture<ResponseEntity<CompactRoute>> response;
+        List<AddressData> stops = request.getStopsId() != null ? solutionCache.stops(request.getStopsId()) : null;
+        int[] avoid = request.getAvoid();
+        if (stops == null) {
+            response = CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    CompactRoute.builder()
+                            .error("Không tìm thấy danh sách điểm dừng, vui lòng tính lại tuyến đường.").build()));
+        } else if (avoid == null || avoid.length != 2 || avoid[0] == avoid[1]
+                || Arrays.stream(avoid).anyMatch(i -> i < 0 || i >= stops.size())) {
+            response = CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(CompactRoute.builder().error("Dữ liệu không hợp lệ").build()));
+        } else {
+            response = rerouteAvoiding(stops, avoid[0], avoid[1])
+                    .thenApply(route -> ResponseEntity.ok(toCompact(route, false)))
+                    .exceptionally(ex -> {
+                        Throwable cause = OutboundHttpClient.unwrap(ex);
+                        log.error("Reroute request failed", cause);
+                        return ResponseEntity.internalServerError()
+                                .body(CompactRoute.builder().error(cause.getMessage()).build());
+                    });
+        }
+        return response.whenComplete((entity, ex) -> metrics.recordRequest(requestSample, "api_reroute", "distance",
+                ex == null && entity.getStatusCode().is2xxSuccessful() ? "ok" : "error"));
+    }
 
-            int h = (int) (totalDur / 3600);
-            int m = (int) ((totalDur % 3600) / 60);
-            res.setTotalDurationText(String.format("%02d giờ %02d phút", h, m));
+    // withStops: include the stop list id and coordinates (left out of reroutes, the client has them)
+    private CompactRoute toCompact(RouteResult route, boolean withStops) {
+        List<AddressData.ScheduleInfo> schedule = null;
+        if (route.getPath().stream().anyMatch(p -> p.getSchedule() != null))
+            schedule = route.getPath().stream().skip(1).map(AddressData::getSchedule).toList();
+        return CompactRoute.builder()
+                .stopsId(withStops ? solutionCache.registerStops(route.getStops()) : null)
+                .polyline(withStops ? Polyline.encode(route.getStops()) : null)
+                .name(route.getName())
+                .tour(route.getTour().stream().mapToInt(Integer::intValue).toArray())
+                .distanceKm(route.getDistanceKm())
+                .execTimeMs(route.getExecTimeMs())
+                .totalDurationText(route.getTotalDurationText())
+                .gapPercent(route.getGapPercent())
+                .schedule(schedule)
+                .build();
+    }
 
-            return res;
+    /**
+     * Solves a list of problems and streams one JSON line per problem as soon as it is solved.
+     * Lines arrive in completion order; match them to the request with "id".
+     */
+    @PostMapping(value = "/api/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseBody
+    public ResponseBodyEmitter batch(@RequestBody List<RouteProblem> problems) {
+        Timer.Sample requestSample = metrics.startTimer();
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchTimeoutMs);
+        try {
+            batchSolveService.solveAll(problems, result -> send(emitter, result))
+                    .whenComplete((ignored, ex) -> {
+                        metrics.recordRequest(requestSample, "batch", "batch", ex == null ? "ok" : "error");
+                        if (ex != null)
+                            emitter.completeWithError(ex);
+                        else
+                            emitter.complete();
+                    });
+        } catch (Exception e) {
+            log.error("Batch request failed", e);
+            metrics.recordRequest(requestSample, "batch", "batch", "error");
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
 
+    /**
+     * Solves one route whose delivery points are the request body as CSV
+     * (address, earliest, latest; see {@link CsvStopReader}). Rows are parsed as the
+     * body arrives and each address is geocoded right away, so a large upload is
+     * never held in memory and geocoding overlaps the transfer. The result is sent
+     * as one JSON line in the format of /api/batch, with id "upload".
+     */
+    @PostMapping(value = "/api/upload", consumes = "text/csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseBody
+    public ResponseBodyEmitter upload(@RequestParam("warehouse_address") String warehouseAddress,
+            @RequestParam(defaultValue = "distance") String mode,
+            @RequestParam(name = "start_time", defaultValue = "08:00") String startTime,
+            InputStream body) {
+        Timer.Sample requestSample = metrics.startTimer();
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(uploadTimeoutMs);
+        RouteProblem problem = new RouteProblem(UPLOAD_ID, warehouseAddress, null, mode, startTime);
+        try {
+            CsvStopReader rows = new CsvStopReader(
+                    new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)), uploadMaxStops);
+            batchSolveService.solveStreaming(problem, rows, result -> send(emitter, result))
+                    .whenComplete((ignored, ex) -> {
+                        metrics.recordRequest(requestSample, "upload", mode, ex == null ? "ok" : "error");
+                        if (ex != null)
+                            emitter.completeWithError(ex);
+                        else
+                            emitter.complete();
+                    });
+        } catch (IllegalArgumentException e) {
+            // Malformed row: report it like any other per-problem error
+            metrics.recordRequest(requestSample, "upload", mode, "error");
+            send(emitter, new BatchRouteResult(UPLOAD_ID, null, e.getMessage()));
+            emitter.complete();
         } catch (Exception e) {
-            e.printStackTrace();
-            return Map.of("error", e.getMessage());
+            log.error("Upload request failed", e);
+            metrics.recordRequest(requestSample, "upload", mode, "error");
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    // Results come from several solver threads; the emitter must see one line at a time
+    private void send(ResponseBodyEmitter emitter, BatchRouteResult result) {
+        synchronized (emitter) {
+            try {
+                emitter.send(objectMapper.writeValueAsString(result) + "\n", MediaType.TEXT_PLAIN);
+            } catch (IOException e) {
+                log.warn("Batch client went away: {}", e.getMessage());
+            }
         }
     }
 }
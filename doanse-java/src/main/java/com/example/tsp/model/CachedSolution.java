@@ -0,0 +1,27 @@
+package com.example.tsp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * What the solve page needs to re-render a previous answer: either the
+ * algorithm comparison (results) or a TSPTW schedule. The tour, as indices
+ * into the geocoded stops, is kept so near-hits can warm-start from it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CachedSolution {
+    private List<RouteResult> results;
+
+    private List<AddressData> schedulePath;
+    private double distanceKm;
+    private double durationSec;
+
+    private List<Integer> tour;
+}
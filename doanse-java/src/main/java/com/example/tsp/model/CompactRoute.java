@@ -0,0 +1,50 @@
+package com.example.tsp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Route in the compact API format: the tour is a list of indices into the
+ * stops stored under {@code stops_id}, whose coordinates come along as one
+ * encoded polyline (in index order). Full stop details are served once by
+ * /api/stops/{stops_id}. Reroute responses leave out stops_id and polyline,
+ * which the client already has.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CompactRoute {
+    @JsonProperty("stops_id")
+    private String stopsId;
+
+    private String polyline;
+
+    private String name;
+
+    private int[] tour;
+
+    @JsonProperty("distance_km")
+    private Double distanceKm;
+
+    @JsonProperty("exec_time_ms")
+    private Double execTimeMs;
+
+    @JsonProperty("total_duration_text")
+    private String totalDurationText;
+
+    @JsonProperty("gap_percent")
+    private Double gapPercent;
+
+    // Schedule mode only: arrival / wait / departure for tour[1..]
+    private List<AddressData.ScheduleInfo> schedule;
+
+    private String error;
+}
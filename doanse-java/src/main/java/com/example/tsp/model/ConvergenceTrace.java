@@ -0,0 +1,49 @@
+package com.example.tsp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ConvergenceTrace {
+    private String algorithm;
+    private long iterations;
+    private long accepted;
+    private long rejected;
+    private long improvements;
+
+    @JsonProperty("last_improvement_iteration")
+    private long lastImprovementIteration;
+
+    @JsonProperty("last_improvement_ms")
+    private double lastImprovementMs;
+
+    @JsonProperty("best_cost")
+    private double bestCost;
+
+    @JsonProperty("stop_reason")
+    private String stopReason;
+
+    // Oldest to newest samples kept by the ring buffer
+    @JsonProperty("sample_iterations")
+    private long[] sampleIterations;
+
+    @JsonProperty("sample_elapsed_ms")
+    private double[] sampleElapsedMs;
+
+    @JsonProperty("sample_current_cost")
+    private double[] sampleCurrentCost;
+
+    @JsonProperty("sample_best_cost")
+    private double[] sampleBestCost;
+
+    @JsonProperty("sample_temperature")
+    private double[] sampleTemperature;
+}
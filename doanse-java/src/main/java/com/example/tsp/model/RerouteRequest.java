@@ -0,0 +1,16 @@
+package com.example.tsp.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * Body of /api/reroute: the stop list returned by /api/solve and the leg to
+ * avoid, as a pair of stop indices [from, to].
+ */
+@Data
+public class RerouteRequest {
+    @JsonProperty("stops_id")
+    private String stopsId;
+
+    private int[] avoid;
+}
@@ -0,0 +1,29 @@
+package com.example.tsp.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One route of a batch request; mirrors the fields of the HTML form.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteProblem {
+    private String id;
+
+    @JsonProperty("kho_hang")
+    private String warehouseAddress;
+
+    @JsonProperty("cac_diem_giao")
+    private List<DeliveryPointInput> deliveryPoints;
+
+    private String mode;
+
+    @JsonProperty("start_time")
+    private String startTime;
+}
@@ -1,5 +1,7 @@
 package com.example.tsp.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -25,4 +27,25 @@ public class RouteResult {
     // For Reroute response
     @JsonProperty("total_duration_text")
     private String totalDurationText;
+
+    // Present when a lower bound could be computed for the instance
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("lower_bound_km")
+    private Double lowerBoundKm;
+
+    // (distance - lower bound) / lower bound; the tour is at most this far from optimal
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("gap_percent")
+    private Double gapPercent;
+
+    // Only present when convergence tracing is enabled
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ConvergenceTrace trace;
+
+    // Server side only: path as indices into stops (warehouse = 0), for the compact API
+    @JsonIgnore
+    private List<Integer> tour;
+
+    @JsonIgnore
+    private List<AddressData> stops;
 }
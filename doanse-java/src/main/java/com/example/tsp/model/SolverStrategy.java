@@ -0,0 +1,35 @@
+package com.example.tsp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One row of the auto-mode strategy table: the first row whose limits the
+ * instance profile satisfies decides the algorithm and its time budget.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SolverStrategy {
+    @JsonProperty("time_windows")
+    private boolean timeWindows;
+
+    @JsonProperty("max_size")
+    private int maxSize;
+
+    @JsonProperty("max_asymmetry")
+    private double maxAsymmetry = 1.0;
+
+    @JsonProperty("min_tightness")
+    private double minTightness;
+
+    private String algorithm;
+
+    // Only used by anytime solvers (genetic, aco); 0 means the solver's default
+    @JsonProperty("budget_ms")
+    private long budgetMs;
+}
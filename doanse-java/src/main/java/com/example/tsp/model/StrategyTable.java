@@ -0,0 +1,28 @@
+package com.example.tsp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StrategyTable {
+    // Where the rows came from, e.g. the benchmark run that produced them
+    private String source;
+
+    @JsonProperty("generated_at")
+    private String generatedAt;
+
+    // Solver pool threads the benchmark ran with; null for hand-written tables
+    @JsonProperty("benchmark_threads")
+    private Integer benchmarkThreads;
+
+    private List<SolverStrategy> strategies = new ArrayList<>();
+}
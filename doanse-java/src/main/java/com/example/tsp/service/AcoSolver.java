@@ -0,0 +1,233 @@
+package com.example.tsp.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * MAX-MIN Ant System.
+ * <p>
+ * Pheromone is a flat, directed {@code float[n * n]} matrix, so asymmetric
+ * road distances are learned per direction. Ants build tours concurrently on
+ * the solver pool and only read the pheromone while doing so. Each ant picks
+ * from the current stop's candidate list, or from all unvisited stops once
+ * those run out. After each iteration the pheromone is evaporated and the
+ * iteration-best (sometimes the global-best) tour deposits, clamped to
+ * [tauMin, tauMax], all in one batch.
+ */
+@Service
+@RequiredArgsConstructor
+public class AcoSolver {
+
+    private static final int CANDIDATE_LIST_SIZE = 15;
+    private static final int MAX_STALL_ITERATIONS = 100;
+    private static final int GLOBAL_BEST_EVERY = 5;
+
+    private final SolverService solverService;
+    private final ForkJoinPool solverExecutor;
+
+    @Value("${tsp.aco.time-budget-ms:2000}")
+    private long timeBudgetMs;
+
+    @Value("${tsp.aco.ants:32}")
+    private int maxAnts;
+
+    @Value("${tsp.aco.beta:3.0}")
+    private double beta;
+
+    @Value("${tsp.aco.evaporation:0.02}")
+    private double rho;
+
+    @Value("${tsp.aco.local-search:true}")
+    private boolean localSearch;
+
+    public List<Integer> solve(double[][] distMatrix) {
+        return solve(distMatrix, timeBudgetMs);
+    }
+
+    public List<Integer> solve(double[][] distMatrix, GapTarget stop) {
+        return solve(distMatrix, timeBudgetMs, stop);
+    }
+
+    public List<Integer> solve(double[][] distMatrix, long budgetMs) {
+        return solve(distMatrix, budgetMs, GapTarget.NONE);
+    }
+
+    public List<Integer> solve(double[][] distMatrix, long budgetMs, GapTarget stop) {
+        int n = distMatrix.length;
+        if (n < 5)
+            return solverService.apply2Opt(solverService.runNearestNeighbor(distMatrix), distMatrix);
+
+        long deadline = System.nanoTime() + budgetMs * 1_000_000L;
+        int[][] candidates = solverService.buildNeighborLists(distMatrix, CANDIDATE_LIST_SIZE);
+
+        // eta^beta with eta = 1/d; unreachable edges get 0
+        float[] heuristic = new float[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double d = distMatrix[i][j];
+                heuristic[i * n + j] = (i == j || Double.isInfinite(d)) ? 0f
+                        : (float) Math.pow(1.0 / Math.max(d, 1.0), beta);
+            }
+        }
+
+        List<Integer> nnPath = solverService.runNearestNeighbor(distMatrix);
+        int[] bestTour = toArray(nnPath);
+        double bestCost = solverService.calculateTotalDistance(nnPath, distMatrix);
+
+        float tauMax = (float) (1.0 / (rho * bestCost));
+        float tauMin = tauMax / (2f * n);
+        float[] pheromone = new float[n * n];
+        Arrays.fill(pheromone, tauMax);
+        float[] choice = new float[n * n];
+        updateChoice(choice, pheromone, heuristic);
+
+        int numAnts = Math.min(maxAnts, n);
+        SplittableRandom seeds = new SplittableRandom();
+        List<Callable<int[]>> ants = new ArrayList<>(numAnts);
+        for (int k = 0; k < numAnts; k++) {
+            SplittableRandom rand = seeds.split();
+            ants.add(() -> buildTour(n, choice, candidates, rand));
+        }
+
+        int stall = 0;
+        int iteration = 0;
+        while (System.nanoTime() < deadline && stall < MAX_STALL_ITERATIONS && !stop.reached(bestCost)) {
+            int[] iterBest = null;
+            double iterBestCost = Double.POSITIVE_INFINITY;
+            for (Future<int[]> future : solverExecutor.invokeAll(ants)) {
+                int[] tour = await(future);
+                double cost = tourCost(tour, distMatrix);
+                if (cost < iterBestCost) {
+                    iterBestCost = cost;
+                    iterBest = tour;
+                }
+            }
+
+            if (localSearch) {
+                List<Integer> improved = solverService.apply2OptOrOpt(toList(iterBest), distMatrix);
+                double improvedCost = solverService.calculateTotalDistance(improved, distMatrix);
+                // 2-Opt assumes symmetry; keep the result only if the directed cost really dropped
+                if (improvedCost < iterBestCost) {
+                    iterBest = toArray(improved);
+                    iterBestCost = improvedCost;
+                }
+            }
+
+            if (iterBestCost < bestCost - 1e-6) {
+                bestCost = iterBestCost;
+                bestTour = iterBest;
+                stall = 0;
+                tauMax = (float) (1.0 / (rho * bestCost));
+                tauMin = tauMax / (2f * n);
+            } else {
+                stall++;
+            }
+
+            boolean useGlobal = ++iteration % GLOBAL_BEST_EVERY == 0;
+            updatePheromone(pheromone, useGlobal ? bestTour : iterBest, useGlobal ? bestCost : iterBestCost,
+                    n, tauMin, tauMax);
+            updateChoice(choice, pheromone, heuristic);
+        }
+        return toList(bestTour);
+    }
+
+    private int[] buildTour(int n, float[] choice, int[][] candidates, SplittableRandom rand) {
+        int[] tour = new int[n];
+        boolean[] visited = new boolean[n];
+        double[] weights = new double[CANDIDATE_LIST_SIZE];
+        visited[0] = true;
+        int current = 0;
+        for (int step = 1; step < n; step++) {
+            int row = current * n;
+            int[] cand = candidates[current];
+            double total = 0;
+            for (int k = 0; k < cand.length; k++) {
+                weights[k] = visited[cand[k]] ? 0 : choice[row + cand[k]];
+                total += weights[k];
+            }
+
+            int next = -1;
+            if (total > 0) {
+                double r = rand.nextDouble() * total;
+                for (int k = 0; k < cand.length; k++) {
+                    r -= weights[k];
+                    if (r <= 0 && weights[k] > 0) {
+                        next = cand[k];
+                        break;
+                    }
+                }
+            }
+            if (next == -1) {
+                // Candidates exhausted: take the best remaining stop
+                float best = -1;
+                for (int j = 0; j < n; j++) {
+                    if (!visited[j] && choice[row + j] > best) {
+                        best = choice[row + j];
+                        next = j;
+                    }
+                }
+            }
+            tour[step] = next;
+            visited[next] = true;
+            current = next;
+        }
+        return tour;
+    }
+
+    private void updatePheromone(float[] pheromone, int[] tour, double cost, int n, float tauMin, float tauMax) {
+        float keep = (float) (1.0 - rho);
+        for (int i = 0; i < pheromone.length; i++)
+            pheromone[i] *= keep;
+        float deposit = (float) (1.0 / cost);
+        for (int i = 0; i < n; i++)
+            pheromone[tour[i] * n + tour[(i + 1) % n]] += deposit;
+        for (int i = 0; i < pheromone.length; i++)
+            pheromone[i] = Math.max(tauMin, Math.min(tauMax, pheromone[i]));
+    }
+
+    private void updateChoice(float[] choice, float[] pheromone, float[] heuristic) {
+        for (int i = 0; i < choice.length; i++)
+            choice[i] = pheromone[i] * heuristic[i];
+    }
+
+    private static int[] await(Future<int[]> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("ACO interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Ant construction failed", e.getCause());
+        }
+    }
+
+    // Tours are stored as int[n] starting at the warehouse; the return leg is implicit
+    private static double tourCost(int[] tour, double[][] d) {
+        double cost = 0;
+        for (int i = 0; i < tour.length; i++)
+            cost += d[tour[i]][tour[(i + 1) % tour.length]];
+        return cost;
+    }
+
+    private static int[] toArray(List<Integer> path) {
+        int[] tour = new int[path.size() - 1];
+        for (int i = 0; i < tour.length; i++)
+            tour[i] = path.get(i);
+        return tour;
+    }
+
+    private static List<Integer> toList(int[] tour) {
+        List<Integer> path = new ArrayList<>(tour.length + 1);
+        for (int v : tour)
+            path.add(v);
+        path.add(0);
+        return path;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.tsp.service;
+
+import com.example.tsp.model.AddressData;
+import com.example.tsp.model.SolverStrategy;
+import com.example.tsp.model.StrategyTable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Auto mode: profiles an instance (size, asymmetry of the matrix, tightness of
+ * the time windows) and runs only the algorithm the strategy table says is
+ * most likely to win at that profile.
+ * <p>
+ * The table is read from tsp.auto.table-file when set, otherwise from the
+ * bundled solver-strategies.json. The file is re-read when its modification
+ * time changes, so a new benchmark run (see {@link StrategyBenchmark}) takes
+ * effect without a restart.
+ * <p>
+ * Budgets are wall-time deadlines and are used as written: a larger solver pool
+ * runs more genetic islands in the same time rather than the same search faster.
+ * The table records the pool size it was measured with (benchmark_threads);
+ * rerun the benchmark on production-like hardware to move the cut-offs.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AutoSolver {
+
+    private static final String BUNDLED_TABLE = "solver-strategies.json";
+
+    private static final Map<String, String> DISPLAY_NAMES = Map.ofEntries(
+            Map.entry("astar", "A* Search (Optimal)"),
+            Map.entry("nn_2opt", "NN + 2-Opt/Or-opt"),
+            Map.entry("indexed_nn_2opt_oropt", "Indexed NN + 2-Opt/Or-opt"),
+            Map.entry("hilbert_2opt_oropt", "Hilbert Curve + 2-Opt/Or-opt"),
+            Map.entry("greedy_2opt_oropt", "Greedy Edge + 2-Opt/Or-opt"),
+            Map.entry("nn_3opt", "NN + 3-Opt"),
+            Map.entry("sa", "Simulated Annealing"),
+            Map.entry("genetic", "Genetic Algorithm (Islands + 2-Opt)"),
+            Map.entry("aco", "Ant Colony (MAX-MIN)"),
+            Map.entry("decomposition", "Cluster + 2-Opt (Parallel)"),
+            Map.entry("dp_tsptw", "TSPTW (Exact DP)"),
+            Map.entry("sa_tsptw", "TSPTW (Simulated Annealing)"));
+
+    private final SolverService solverService;
+    private final ConstructionService constructionService;
+    private final DecompositionSolver decompositionSolver;
+    private final GeneticSolver geneticSolver;
+    private final AcoSolver acoSolver;
+    private final ObjectMapper objectMapper;
+
+    @Value("${tsp.auto.table-file:}")
+    private String tableFile;
+
+    @Value("${tsp.auto.max-budget-ms:5000}")
+    private long maxBudgetMs;
+
+    private volatile StrategyTable table;
+    private volatile long tableModified;
+
+    @Data
+    @AllArgsConstructor
+    public static class Profile {
+        private int size;
+        // Mean |d(i,j) - d(j,i)| / (d(i,j) + d(j,i)) over finite pairs, 0 = symmetric
+        private double asymmetry;
+        // 1 - mean window width / 24h, 0 when there are no windows
+        private double tightness;
+        private boolean timeWindows;
+    }
+
+    @PostConstruct
+    void init() {
+        refresh();
+        if (table == null)
+            throw new IllegalStateException("No solver strategy table could be loaded");
+    }
+
+    /**
+     * Reloads the table if tsp.auto.table-file changed on disk. A broken file
+     * keeps the previous table.
+     */
+    public synchronized void refresh() {
+        try {
+            if (!tableFile.isBlank() && Files.exists(Path.of(tableFile))) {
+                long modified = Files.getLastModifiedTime(Path.of(tableFile)).toMillis();
+                if (table != null && modified == tableModified)
+                    return;
+                table = objectMapper.readValue(Path.of(tableFile).toFile(), StrategyTable.class);
+                tableModified = modified;
+                log.info("Loaded {} solver strategies from {}", table.getStrategies().size(), tableFile);
+            } else if (table == null) {
+                try (InputStream in = new ClassPathResource(BUNDLED_TABLE).getInputStream()) {
+                    table = objectMapper.readValue(in, StrategyTable.class);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not load solver strategy table: {}", e.getMessage());
+        }
+    }
+
+    public StrategyTable getTable() {
+        return table;
+    }
+
+    public Profile profile(double[][] distMatrix, List<SolverService.TimeWindow> timeWindows) {
+        int n = distMatrix.length;
+        double asym = 0;
+        int pairs = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double a = distMatrix[i][j], b = distMatrix[j][i];
+                if (Double.isInfinite(a) || Double.isInfinite(b) || a + b <= 0)
+                    continue;
+                asym += Math.abs(a - b) / (a + b);
+                pairs++;
+            }
+        }
+        double tightness = 0;
+        boolean windows = timeWindows != null && !timeWindows.isEmpty();
+        if (windows) {
+            double width = 0;
+            for (SolverService.TimeWindow w : timeWindows)
+                width += Math.max(0, w.getLatest() - w.getEarliest());
+            tightness = Math.max(0, 1 - width / timeWindows.size() / 86400.0);
+        }
+        return new Profile(n, pairs > 0 ? asym / pairs : 0, tightness, windows);
+    }
+
+    public SolverStrategy choose(Profile profile) {
+        refresh();
+        for (SolverStrategy s : table.getStrategies()) {
+            if (s.isTimeWindows() == profile.isTimeWindows()
+                    && profile.getSize() <= s.getMaxSize()
+                    && profile.getAsymmetry() <= s.getMaxAsymmetry()
+                    && profile.getTightness() >= s.getMinTightness())
+                return s;
+        }
+        // Nothing matched (e.g. larger than every row): the cheapest scalable choice
+        return profile.isTimeWindows()
+                ? new SolverStrategy(true, Integer.MAX_VALUE, 1.0, 0, "sa_tsptw", 0)
+                : new SolverStrategy(false, Integer.MAX_VALUE, 1.0, 0, "greedy_2opt_oropt", 0);
+    }
+
+    public static boolean isSchedule(SolverStrategy strategy) {
+        return strategy.getAlgorithm().endsWith("_tsptw");
+    }
+
+    public static String displayName(SolverStrategy strategy) {
+        return DISPLAY_NAMES.getOrDefault(strategy.getAlgorithm(), strategy.getAlgorithm());
+    }
+
+    /**
+     * Runs a distance (non-schedule) strategy and returns the closed tour.
+     */
+    public List<Integer> run(SolverStrategy strategy, List<AddressData> locations, double[][] distMatrix) {
+        return run(strategy, locations, distMatrix, GapTarget.NONE);
+    }
+
+    public List<Integer> run(SolverStrategy strategy, List<AddressData> locations, double[][] distMatrix,
+            GapTarget stop) {
+        long budget = budget(strategy);
+        return switch (strategy.getAlgorithm()) {
+            case "astar" -> solverService.runAStarSolver(distMatrix);
+            case "nn_2opt" -> solverService.applyAsymmetricLocalSearch(
+                    solverService.runNearestNeighbor(distMatrix), distMatrix);
+            case "indexed_nn_2opt_oropt" -> solverService.apply2OptOrOpt(
+                    constructionService.nearestNeighbor(locations, distMatrix), distMatrix);
+            case "hilbert_2opt_oropt" -> solverService.apply2OptOrOpt(
+                    constructionService.hilbertOrder(locations, distMatrix), distMatrix);
+            case "greedy_2opt_oropt" -> solverService.apply2OptOrOpt(
+                    constructionService.greedyEdge(locations, distMatrix), distMatrix);
+            case "nn_3opt" -> solverService.run3Opt(distMatrix, null, stop);
+            case "sa" -> solverService.runSaSolver(distMatrix, null, stop);
+            case "genetic" -> budget > 0 ? geneticSolver.solve(distMatrix, budget, stop)
+                    : geneticSolver.solve(distMatrix, stop);
+            case "aco" -> budget > 0 ? acoSolver.solve(distMatrix, budget, stop) : acoSolver.solve(distMatrix, stop);
+            case "decomposition" -> decompositionSolver.solve(locations, distMatrix);
+            default -> throw new IllegalArgumentException("Unknown algorithm in strategy table: "
+                    + strategy.getAlgorithm());
+        };
+    }
+
+    /**
+     * Whether a schedule strategy runs the exact DP on this instance. A dp_tsptw row
+     * never overrides tsp.tsptw.exact-max-stops; larger instances fall back to SA.
+     */
+    public boolean isExactSchedule(SolverStrategy strategy, int numLocations) {
+        return "dp_tsptw".equals(strategy.getAlgorithm()) && solverService.isExactTsptw(numLocations);
+    }
+
+    public SolverService.TSPTWResult runSchedule(SolverStrategy strategy, double[][] distMatrix,
+            double[][] durationMatrix, List<SolverService.TimeWindow> timeWindows, int startTimeSec) {
+        if (isExactSchedule(strategy, distMatrix.length))
+            return solverService.runExactTsptw(distMatrix, durationMatrix, timeWindows, startTimeSec);
+        return solverService.runSaSolverForTsptw(distMatrix, durationMatrix, timeWindows, startTimeSec);
+    }
+
+    private long budget(SolverStrategy strategy) {
+        return Math.min(strategy.getBudgetMs(), maxBudgetMs);
+    }
+}
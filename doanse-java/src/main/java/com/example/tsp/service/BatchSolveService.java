@@ -0,0 +1,319 @@
+package com.example.tsp.service;
+
+import com.example.tsp.model.AddressData;
+import com.example.tsp.model.BatchRouteResult;
+import com.example.tsp.model.DeliveryPointInput;
+import com.example.tsp.model.RouteProblem;
+import com.example.tsp.model.RouteResult;
+import com.example.tsp.model.SolverStrategy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Solves many route problems at once. Addresses are deduplicated across the
+ * whole batch and geocoded once, a single (tiled) OSRM matrix is fetched for
+ * all distinct locations, and each problem's sub-matrix is sliced out of it.
+ * Problems are then solved in parallel on the shared solver pool and every
+ * result is handed to the caller as soon as it is ready.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BatchSolveService {
+
+    private final GeocodingService geocodingService;
+    private final RoutingService routingService;
+    private final SolverService solverService;
+    private final ConstructionService constructionService;
+    private final GeneticSolver geneticSolver;
+    private final AcoSolver acoSolver;
+    private final AutoSolver autoSolver;
+    private final DecompositionSolver decompositionSolver;
+    private final LowerBoundService lowerBoundService;
+    private final ForkJoinPool solverExecutor;
+    private final TspMetrics metrics;
+
+    @Value("${tsp.construction.indexed-threshold:500}")
+    private int indexedConstructionThreshold;
+
+    @Value("${tsp.decomposition.threshold:300}")
+    private int decompositionThreshold;
+
+    /**
+     * Geocoding (one Nominatim request at a time), the matrix request and solving
+     * all run asynchronously; the caller is never blocked. The returned future
+     * completes once every problem has been reported to {@code sink}.
+     */
+    public CompletableFuture<Void> solveAll(List<RouteProblem> problems, Consumer<BatchRouteResult> sink) {
+        List<String> addresses = new ArrayList<>();
+        for (RouteProblem problem : problems)
+            addresses.addAll(addressesOf(problem));
+        return geocodingService.getCoordsFromAddressesAsync(addresses)
+                .thenCompose(geocoded -> solveGeocoded(problems, geocoded, sink));
+    }
+
+    /**
+     * Solves one problem whose delivery points are read one by one, e.g. from an
+     * uploaded CSV. Every new address is queued for geocoding as soon as its row is
+     * read, so Nominatim works through the list while the rest of the input is
+     * still arriving; the queue still sends one request at a time. Blocks only
+     * while reading {@code rows}. If reading fails, queued lookups are dropped and
+     * the exception is rethrown.
+     */
+    public CompletableFuture<Void> solveStreaming(RouteProblem problem, Iterator<DeliveryPointInput> rows,
+            Consumer<BatchRouteResult> sink) {
+        Map<String, CompletableFuture<AddressData>> pending = new LinkedHashMap<>();
+        AtomicBoolean aborted = new AtomicBoolean();
+        CompletableFuture<AddressData> last = CompletableFuture.completedFuture(null);
+
+        List<DeliveryPointInput> points = new ArrayList<>();
+        problem.setDeliveryPoints(points);
+        try {
+            for (String addr : addressesOf(problem))
+                last = enqueue(pending, addr, last, aborted);
+            while (rows.hasNext()) {
+                DeliveryPointInput dp = rows.next();
+                points.add(dp);
+                last = enqueue(pending, dp.getAddress().trim(), last, aborted);
+            }
+        } catch (RuntimeException e) {
+            aborted.set(true);
+            throw e;
+        }
+        log.info("Streamed {} delivery points ({} distinct addresses)", points.size(), pending.size());
+
+        return CompletableFuture.allOf(pending.values().toArray(new CompletableFuture<?>[0]))
+                .thenCompose(ignored -> {
+                    Map<String, AddressData> geocoded = new HashMap<>();
+                    pending.forEach((addr, future) -> geocoded.put(addr, future.join()));
+                    return solveGeocoded(List.of(problem), geocoded, sink);
+                });
+    }
+
+    // Chains the lookup after the previous one; repeated addresses share a lookup
+    private CompletableFuture<AddressData> enqueue(Map<String, CompletableFuture<AddressData>> pending, String addr,
+            CompletableFuture<AddressData> last, AtomicBoolean aborted) {
+        if (pending.containsKey(addr))
+            return last;
+        CompletableFuture<AddressData> lookup = last.thenCompose(ignored -> aborted.get()
+                ? CompletableFuture.completedFuture(null)
+                : geocodingService.getCoordsFromAddressAsync(addr));
+        pending.put(addr, lookup);
+        return lookup;
+    }
+
+    private CompletableFuture<Void> solveGeocoded(List<RouteProblem> problems, Map<String, AddressData> geocoded,
+            Consumer<BatchRouteResult> sink) {
+        List<AddressData> located = new ArrayList<>();
+        Map<String, Integer> matrixIndex = new HashMap<>();
+        for (Map.Entry<String, AddressData> e : geocoded.entrySet()) {
+            if (e.getValue() != null) {
+                matrixIndex.put(e.getKey(), located.size());
+                located.add(e.getValue());
+            }
+        }
+        CompletableFuture<RoutingService.RoutingMatrix> matrix = located.size() > 1
+                ? routingService.getCombinedRouteInfoAsync(located)
+                : CompletableFuture.completedFuture(null);
+        return matrix.thenCompose(m -> solveProblems(problems, located, matrixIndex, m, sink));
+    }
+
+    private CompletableFuture<Void> solveProblems(List<RouteProblem> problems, List<AddressData> located,
+            Map<String, Integer> matrixIndex, RoutingService.RoutingMatrix matrix, Consumer<BatchRouteResult> sink) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (RouteProblem problem : problems) {
+            String error = validate(problem, matrixIndex, matrix);
+            if (error != null) {
+                sink.accept(new BatchRouteResult(problem.getId(), null, error));
+                continue;
+            }
+
+            List<String> addresses = addressesOf(problem);
+            int[] idx = addresses.stream().mapToInt(matrixIndex::get).toArray();
+            List<AddressData> stops = new ArrayList<>();
+            for (int i : idx)
+                stops.add(located.get(i));
+            double[][] dist = slice(matrix.getDistances(), idx);
+            double[][] dur = slice(matrix.getDurations(), idx);
+
+            futures.add(CompletableFuture
+                    .supplyAsync(() -> solveProblem(problem, stops, dist, dur), solverExecutor)
+                    .handle((route, ex) -> {
+                        if (ex != null) {
+                            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                            log.warn("Batch problem {} failed: {}", problem.getId(), cause.getMessage());
+                            sink.accept(new BatchRouteResult(problem.getId(), null, cause.getMessage()));
+                        } else {
+                            sink.accept(new BatchRouteResult(problem.getId(), route, null));
+                        }
+                        return null;
+                    }));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    // Warehouse first, then delivery points, in the order they were given
+    private List<String> addressesOf(RouteProblem problem) {
+        List<String> res = new ArrayList<>();
+        if (problem.getWarehouseAddress() != null && !problem.getWarehouseAddress().isBlank())
+            res.add(problem.getWarehouseAddress().trim());
+        if (problem.getDeliveryPoints() != null) {
+            for (DeliveryPointInput dp : problem.getDeliveryPoints()) {
+                if (dp.getAddress() != null && !dp.getAddress().isBlank())
+                    res.add(dp.getAddress().trim());
+            }
+        }
+        return res;
+    }
+
+    private String validate(RouteProblem problem, Map<String, Integer> matrixIndex,
+            RoutingService.RoutingMatrix matrix) {
+        if (problem.getWarehouseAddress() == null || problem.getWarehouseAddress().isBlank())
+            return "Thiếu địa chỉ kho hàng.";
+        if (addressesOf(problem).size() < 2)
+            return "Vui lòng nhập ít nhất một điểm giao hàng.";
+        for (String addr : addressesOf(problem)) {
+            if (!matrixIndex.containsKey(addr))
+                return "Không thể tìm tọa độ cho địa chỉ: " + addr;
+        }
+        if (matrix == null)
+            return "Không thể lấy dữ liệu từ OSRM API.";
+        return null;
+    }
+
+    private double[][] slice(double[][] full, int[] idx) {
+        double[][] sub = new double[idx.length][idx.length];
+        for (int i = 0; i < idx.length; i++)
+            for (int j = 0; j < idx.length; j++)
+                sub[i][j] = full[idx[i]][idx[j]];
+        return sub;
+    }
+
+    private RouteResult solveProblem(RouteProblem problem, List<AddressData> stops, double[][] dist,
+            double[][] dur) {
+        String mode = problem.getMode() != null ? problem.getMode() : "distance";
+        long start = System.currentTimeMillis();
+
+        if ("schedule".equals(mode))
+            return solveSchedule(problem, stops, dist, dur, start, null);
+
+        CompletableFuture<Double> bound = lowerBoundService.startAsync(dist);
+        GapTarget gapTarget = lowerBoundService.gapTarget(bound);
+        List<Integer> path;
+        String name;
+        switch (mode) {
+            case "auto" -> {
+                // Windows only count if the caller gave any; otherwise this is a plain distance problem
+                boolean hasWindows = problem.getDeliveryPoints().stream()
+                        .anyMatch(dp -> dp.getEarliest() != null || dp.getLatest() != null);
+                SolverStrategy strategy = autoSolver.choose(
+                        autoSolver.profile(dist, hasWindows ? windowsOf(problem) : null));
+                if (AutoSolver.isSchedule(strategy))
+                    return solveSchedule(problem, stops, dist, dur, start, strategy);
+                path = metrics.timeSolver(strategy.getAlgorithm(), dist.length,
+                        () -> autoSolver.run(strategy, stops, dist, gapTarget));
+                name = "Auto: " + AutoSolver.displayName(strategy);
+            }
+            case "astar" -> {
+                path = metrics.timeSolver("astar", dist.length, () -> solverService.runAStarSolver(dist));
+                name = "A* Search (Optimal)";
+            }
+            case "genetic" -> {
+                path = metrics.timeSolver("genetic", dist.length, () -> geneticSolver.solve(dist, gapTarget));
+                name = "Genetic Algorithm (Islands + 2-Opt)";
+            }
+            case "aco" -> {
+                path = metrics.timeSolver("aco", dist.length, () -> acoSolver.solve(dist, gapTarget));
+                name = "Ant Colony (MAX-MIN)";
+            }
+            default -> {
+                if (dist.length >= decompositionThreshold) {
+                    // Large problems: cluster, solve clusters in parallel and stitch, as the form does
+                    path = metrics.timeSolver("decomposition", dist.length, () -> decompositionSolver.solve(stops,
+                            dist, m -> solverService.applyAsymmetricLocalSearch(solverService.runNearestNeighbor(m), m)));
+                    name = "Cluster + 2-Opt/Or-opt (Parallel)";
+                } else if (dist.length >= indexedConstructionThreshold) {
+                    path = metrics.timeSolver("greedy_2opt_oropt", dist.length, () -> solverService
+                            .apply2OptOrOpt(constructionService.greedyEdge(stops, dist), dist));
+                    name = "Greedy Edge + 2-Opt/Or-opt";
+                } else {
+                    path = metrics.timeSolver("nn_2opt", dist.length, () -> solverService
+                            .applyAsymmetricLocalSearch(solverService.runNearestNeighbor(dist), dist));
+                    name = "NN + 2-Opt/Or-opt";
+                }
+            }
+        }
+
+        List<AddressData> route = new ArrayList<>();
+        for (int i : path)
+            route.add(stops.get(i));
+        RouteResult result = RouteResult.builder()
+                .name(name)
+                .path(route)
+                .distanceKm(solverService.calculateTotalDistance(path, dist) / 1000.0)
+                .execTimeMs(System.currentTimeMillis() - start)
+                .totalDurationText(formatDuration(solverService.calculateTotalDistance(path, dur)))
+                .tour(path)
+                .stops(stops)
+                .build();
+        lowerBoundService.annotate(List.of(result), bound);
+        return result;
+    }
+
+    private List<SolverService.TimeWindow> windowsOf(RouteProblem problem) {
+        List<SolverService.TimeWindow> windows = new ArrayList<>();
+        for (DeliveryPointInput dp : problem.getDeliveryPoints()) {
+            if (dp.getAddress() == null || dp.getAddress().isBlank())
+                continue;
+            windows.add(new SolverService.TimeWindow(
+                    solverService.timeStrToSeconds(dp.getEarliest() != null ? dp.getEarliest() : "00:00"),
+                    solverService.timeStrToSeconds(dp.getLatest() != null ? dp.getLatest() : "23:59")));
+        }
+        return windows;
+    }
+
+    // strategy is set when auto mode picked a schedule algorithm, null for plain schedule mode
+    private RouteResult solveSchedule(RouteProblem problem, List<AddressData> stops, double[][] dist,
+            double[][] dur, long start, SolverStrategy strategy) {
+        List<SolverService.TimeWindow> windows = windowsOf(problem);
+        int startSec = solverService.timeStrToSeconds(problem.getStartTime() != null ? problem.getStartTime() : "08:00");
+
+        boolean exact = strategy != null ? autoSolver.isExactSchedule(strategy, dist.length)
+                : solverService.isExactTsptw(dist.length);
+        SolverService.TSPTWResult result = metrics.timeSolver(exact ? "dp_tsptw" : "sa_tsptw", dist.length,
+                () -> strategy != null ? autoSolver.runSchedule(strategy, dist, dur, windows, startSec)
+                        : solverService.solveTsptw(dist, dur, windows, startSec, null));
+
+        List<AddressData> route = new ArrayList<>();
+        for (int i = 0; i < result.path.size(); i++) {
+            AddressData ad = stops.get(result.path.get(i));
+            AddressData node = new AddressData(ad.getDisplayName(), ad.getLat(), ad.getLon(), null);
+            if (i > 0 && i - 1 < result.schedule.size())
+                node.setSchedule(result.schedule.get(i - 1));
+            route.add(node);
+        }
+        return RouteResult.builder()
+                .name((strategy != null ? "Auto: " : "") + (exact ? "TSPTW (Exact DP)" : "TSPTW (Simulated Annealing)"))
+                .path(route)
+                .distanceKm(result.distance / 1000.0)
+                .execTimeMs(System.currentTimeMillis() - start)
+                .totalDurationText(formatDuration(result.cost))
+                .tour(result.path)
+                .stops(stops)
+                .build();
+    }
+
+    private String formatDuration(double seconds) {
+        int h = (int) (seconds / 3600);
+        int m = (int) ((seconds % 3600) / 60);
+        return String.format("%02d giờ %02d phút", h, m);
+    }
+}
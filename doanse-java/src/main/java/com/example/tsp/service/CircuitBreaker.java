@@ -0,0 +1,79 @@
+package com.example.tsp.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Minimal consecutive-failure circuit breaker for one upstream service.
+ * <p>
+ * CLOSED lets every call through. After {@code failureThreshold} failures in
+ * a row the breaker OPENs and rejects calls for {@code openMs}. Then it goes
+ * HALF_OPEN and lets a single probe through: success closes it, failure opens
+ * it again.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMs) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMs * 1_000_000L;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return false if the call must not be made right now
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos)
+                return false;
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight)
+                return false;
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED)
+            log.info("Circuit '{}' closed", name);
+        state = State.CLOSED;
+        failures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            if (state != State.OPEN)
+                log.warn("Circuit '{}' opened after {} failure(s)", name, Math.max(failures, 1));
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            failures = 0;
+            probeInFlight = false;
+        }
+    }
+}
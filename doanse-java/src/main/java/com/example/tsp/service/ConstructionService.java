@@ -0,0 +1,235 @@
+package com.example.tsp.service;
+
+import com.example.tsp.model.AddressData;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Fast initial-tour heuristics backed by a {@link SpatialIndex}. All of them
+ * return a closed tour 0 -> ... -> 0 like the solvers in {@link SolverService},
+ * so their output can be fed straight into 2-Opt / 3-Opt.
+ * <p>
+ * The index is geometric while the matrix holds road distances, so candidates
+ * are taken from the index and then ranked with the matrix.
+ */
+@Service
+public class ConstructionService {
+
+    private static final int NN_CANDIDATES = 8;
+    private static final int GREEDY_CANDIDATES = 10;
+    private static final int HILBERT_ORDER = 1 << 16;
+    private static final int EDGE_ID_BITS = 24;
+    private static final double MAX_EDGE_COST = (double) (1L << (63 - EDGE_ID_BITS)) - 1;
+
+    /**
+     * Nearest neighbor where each step only looks at the few geometrically
+     * closest unvisited stops: O(n log n) instead of O(n^2).
+     */
+    public List<Integer> nearestNeighbor(List<AddressData> locations, double[][] distMatrix) {
+        int n = locations.size();
+        SpatialIndex index = new SpatialIndex(locations);
+        List<Integer> tour = new ArrayList<>(n + 1);
+        tour.add(0);
+        index.remove(0);
+
+        int current = 0;
+        for (int step = 1; step < n; step++) {
+            int[] candidates = index.nearest(current, NN_CANDIDATES);
+            int next = -1;
+            double best = Double.POSITIVE_INFINITY;
+            for (int c : candidates) {
+                if (distMatrix[current][c] < best) {
+                    best = distMatrix[current][c];
+                    next = c;
+                }
+            }
+            if (next == -1) {
+                // All nearby stops are unreachable (e.g. avoided segment): fall back to a full scan
+                for (int c = 1; c < n; c++) {
+                    if (index.isAlive(c) && distMatrix[current][c] < best) {
+                        best = distMatrix[current][c];
+                        next = c;
+                    }
+                }
+            }
+            if (next == -1)
+                throw new RuntimeException("Graph not connected");
+            index.remove(next);
+            tour.add(next);
+            current = next;
+        }
+        tour.add(0);
+        return tour;
+    }
+
+    /**
+     * Orders the stops along a Hilbert space-filling curve: O(n log n), no matrix lookups.
+     */
+    public List<Integer> hilbertOrder(List<AddressData> locations, double[][] distMatrix) {
+        int n = locations.size();
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+        for (AddressData a : locations) {
+            minLat = Math.min(minLat, a.getLat());
+            maxLat = Math.max(maxLat, a.getLat());
+            minLon = Math.min(minLon, a.getLon());
+            maxLon = Math.max(maxLon, a.getLon());
+        }
+        double span = Math.max(Math.max(maxLat - minLat, maxLon - minLon), 1e-9);
+
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            int x = (int) ((locations.get(i).getLon() - minLon) / span * (HILBERT_ORDER - 1));
+            int y = (int) ((locations.get(i).getLat() - minLat) / span * (HILBERT_ORDER - 1));
+            // Curve position in the high bits, stop index in the low bits
+            keys[i] = (hilbertIndex(x, y) << 20) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[i] = (int) (keys[i] & ((1 << 20) - 1));
+        return closeTour(order, distMatrix);
+    }
+
+    /**
+     * Greedy edge matching: repeatedly adds the cheapest candidate edge that keeps
+     * every stop at degree <= 2 and creates no cycle, then joins the resulting
+     * fragments end to end using the index.
+     */
+    public List<Integer> greedyEdge(List<AddressData> locations, double[][] distMatrix) {
+        int n = locations.size();
+        if (n < 3)
+            return closeTour(identity(n), distMatrix);
+        SpatialIndex index = new SpatialIndex(locations);
+
+        int k = Math.min(GREEDY_CANDIDATES, n - 1);
+        int[] from = new int[n * k];
+        int[] to = new int[n * k];
+        double[] cost = new double[n * k];
+        int edges = 0;
+        for (int i = 0; i < n; i++) {
+            // Mutual neighbors appear twice; the cycle check rejects the duplicate
+            for (int j : index.nearest(i, k)) {
+                from[edges] = i;
+                to[edges] = j;
+                // Direction is decided later, so rank edges by their mean cost
+                cost[edges] = (distMatrix[i][j] + distMatrix[j][i]) / 2;
+                edges++;
+            }
+        }
+        // Sort edge ids by cost (rounded to whole metres) as packed primitive keys
+        long[] byCost = new long[edges];
+        for (int e = 0; e < edges; e++)
+            byCost[e] = ((long) Math.min(cost[e], MAX_EDGE_COST) << EDGE_ID_BITS) | e;
+        Arrays.sort(byCost);
+
+        int[] adjA = new int[n];
+        int[] adjB = new int[n];
+        Arrays.fill(adjA, -1);
+        Arrays.fill(adjB, -1);
+        int[] parent = identity(n);
+        for (long key : byCost) {
+            int e = (int) (key & ((1L << EDGE_ID_BITS) - 1));
+            int a = from[e], b = to[e];
+            if (adjB[a] != -1 || adjB[b] != -1)
+                continue;
+            int ra = find(parent, a), rb = find(parent, b);
+            if (ra == rb)
+                continue;
+            parent[ra] = rb;
+            link(adjA, adjB, a, b);
+            link(adjA, adjB, b, a);
+        }
+
+        // Only fragment endpoints (degree < 2) stay in the index
+        for (int i = 0; i < n; i++) {
+            if (adjB[i] != -1)
+                index.remove(i);
+        }
+
+        int[] order = new int[n];
+        int count = 0;
+        int end = 0;
+        while (adjB[end] != -1)
+            end++;
+        while (true) {
+            index.remove(end);
+            int prev = -1, cur = end;
+            while (cur != -1) {
+                order[count++] = cur;
+                int next = adjA[cur] != prev ? adjA[cur] : adjB[cur];
+                prev = cur;
+                cur = next;
+            }
+            index.remove(prev);
+            if (count == n)
+                break;
+            end = index.nearestOne(prev);
+        }
+        return closeTour(order, distMatrix);
+    }
+
+    private static void link(int[] adjA, int[] adjB, int a, int b) {
+        if (adjA[a] == -1)
+            adjA[a] = b;
+        else
+            adjB[a] = b;
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    private static int[] identity(int n) {
+        int[] res = new int[n];
+        for (int i = 0; i < n; i++)
+            res[i] = i;
+        return res;
+    }
+
+    // Rotates a cyclic order so it starts at the warehouse and picks the cheaper direction
+    private List<Integer> closeTour(int[] order, double[][] distMatrix) {
+        int n = order.length;
+        int start = 0;
+        while (order[start] != 0)
+            start++;
+        double forward = 0, backward = 0;
+        for (int i = 0; i < n; i++) {
+            int a = order[i], b = order[(i + 1) % n];
+            forward += distMatrix[a][b];
+            backward += distMatrix[b][a];
+        }
+        List<Integer> tour = new ArrayList<>(n + 1);
+        for (int i = 0; i < n; i++) {
+            int idx = backward < forward ? start - i : start + i;
+            tour.add(order[((idx % n) + n) % n]);
+        }
+        tour.add(0);
+        return tour;
+    }
+
+    private static long hilbertIndex(int x, int y) {
+        long d = 0;
+        for (int s = HILBERT_ORDER / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = HILBERT_ORDER - 1 - x;
+                    y = HILBERT_ORDER - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+}
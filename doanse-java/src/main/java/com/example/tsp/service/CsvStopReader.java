@@ -0,0 +1,161 @@
+package com.example.tsp.service;
+
+import com.example.tsp.model.DeliveryPointInput;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+
+/**
+ * Reads delivery points from CSV one row at a time, so a large upload never has
+ * to be held in memory. Columns are address, earliest, latest; a header row
+ * (address / dia_chi, earliest, latest in any order) is recognised and skipped.
+ * Quoted fields may contain commas, doubled quotes and line breaks. Blank rows
+ * and rows without an address are skipped, like empty form fields. Reading
+ * stops with an error at the first delivery point beyond maxStops.
+ */
+public class CsvStopReader implements Iterator<DeliveryPointInput> {
+
+    private static final Pattern TIME = Pattern.compile("\\d{1,2}:\\d{2}");
+
+    private final BufferedReader in;
+    private final int maxStops;
+    private final StringBuilder field = new StringBuilder();
+    private int addressCol = 0, earliestCol = 1, latestCol = 2;
+    private int line = 1;
+    private boolean firstRow = true;
+    private boolean eof;
+    private int stops;
+    private DeliveryPointInput next;
+
+    public CsvStopReader(BufferedReader in, int maxStops) {
+        this.in = in;
+        this.maxStops = maxStops;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !eof) {
+            int rowLine = line;
+            next = parse(readRow(), rowLine);
+        }
+        return next != null;
+    }
+
+    @Override
+    public DeliveryPointInput next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        DeliveryPointInput res = next;
+        next = null;
+        return res;
+    }
+
+    private DeliveryPointInput parse(List<String> row, int rowLine) {
+        if (row == null)
+            return null;
+        if (firstRow) {
+            firstRow = false;
+            if (isHeader(row))
+                return null;
+        }
+        String address = cell(row, addressCol);
+        if (address == null)
+            return null;
+        if (++stops > maxStops)
+            throw new IllegalArgumentException("Dòng " + rowLine + ": vượt quá giới hạn " + maxStops
+                    + " điểm giao hàng mỗi lần tải lên.");
+        DeliveryPointInput dp = new DeliveryPointInput();
+        dp.setAddress(address);
+        dp.setEarliest(time(cell(row, earliestCol), rowLine));
+        dp.setLatest(time(cell(row, latestCol), rowLine));
+        return dp;
+    }
+
+    private boolean isHeader(List<String> row) {
+        int address = -1, earliest = -1, latest = -1;
+        for (int i = 0; i < row.size(); i++) {
+            switch (row.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "address", "dia_chi", "địa chỉ" -> address = i;
+                case "earliest" -> earliest = i;
+                case "latest" -> latest = i;
+                default -> {
+                }
+            }
+        }
+        if (address == -1)
+            return false;
+        addressCol = address;
+        earliestCol = earliest;
+        latestCol = latest;
+        return true;
+    }
+
+    private static String cell(List<String> row, int col) {
+        if (col < 0 || col >= row.size())
+            return null;
+        String v = row.get(col).trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    private static String time(String value, int rowLine) {
+        if (value != null && !TIME.matcher(value).matches())
+            throw new IllegalArgumentException("Dòng " + rowLine + ": giờ không hợp lệ '" + value + "' (cần HH:MM).");
+        return value;
+    }
+
+    // One record, or null at end of input; a record may span lines inside quotes
+    private List<String> readRow() {
+        try {
+            List<String> row = new ArrayList<>();
+            field.setLength(0);
+            boolean quoted = false, any = false;
+            while (true) {
+                int c = in.read();
+                if (c == -1) {
+                    eof = true;
+                    if (!any)
+                        return null;
+                    row.add(field.toString());
+                    return row;
+                }
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        if (in.read() == '"') {
+                            field.append('"');
+                        } else {
+                            in.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        if (c == '\n')
+                            line++;
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    row.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    line++;
+                    row.add(field.toString());
+                    return row;
+                } else if (c != '\r' && c != '\uFEFF') {
+                    // \r of CRLF endings and an Excel byte-order mark are dropped
+                    field.append((char) c);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.tsp.service;
+
+import com.example.tsp.model.AddressData;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Solver for very large instances: partitions the stops into angular sectors
+ * around the warehouse (sweep), solves each sector's sub-matrix in parallel,
+ * concatenates the sub-tours in sweep order and finally runs 2-Opt on windows
+ * around the cluster boundaries.
+ */
+@Service
+@RequiredArgsConstructor
+public class DecompositionSolver {
+
+    private final SolverService solverService;
+    private final ForkJoinPool solverExecutor;
+
+    @Value("${tsp.decomposition.cluster-size:150}")
+    private int clusterSize;
+
+    @Value("${tsp.decomposition.boundary-window:20}")
+    private int boundaryWindow;
+
+    public List<Integer> solve(List<AddressData> locations, double[][] distMatrix) {
+        return solve(locations, distMatrix, m -> solverService.apply2Opt(solverService.runNearestNeighbor(m), m));
+    }
+
+    /**
+     * @param subSolver solver applied to every cluster; receives a sub-matrix whose
+     *                  index 0 is the warehouse and must return a 0 -> ... -> 0 tour
+     */
+    public List<Integer> solve(List<AddressData> locations, double[][] distMatrix,
+            Function<double[][], List<Integer>> subSolver) {
+        int n = distMatrix.length;
+        if (n <= clusterSize + 1)
+            return subSolver.apply(distMatrix);
+
+        List<int[]> clusters = sweepClusters(locations);
+
+        List<CompletableFuture<int[]>> futures = new ArrayList<>();
+        for (int[] cluster : clusters) {
+            futures.add(CompletableFuture.supplyAsync(() -> solveCluster(cluster, distMatrix, subSolver),
+                    solverExecutor));
+        }
+
+        List<Integer> tour = new ArrayList<>(n + 1);
+        tour.add(0);
+        List<Integer> boundaries = new ArrayList<>();
+        for (CompletableFuture<int[]> future : futures) {
+            int[] path = future.join();
+            int last = tour.get(tour.size() - 1);
+            if (shouldReverse(path, last, distMatrix))
+                reverse(path);
+            if (tour.size() > 1)
+                boundaries.add(tour.size());
+            for (int node : path)
+                tour.add(node);
+        }
+        tour.add(0);
+
+        refineBoundaries(tour, boundaries, distMatrix);
+        return tour;
+    }
+
+    /**
+     * Splits the non-warehouse stops into contiguous angular sectors of roughly
+     * equal size, ordered by angle around the warehouse.
+     */
+    List<int[]> sweepClusters(List<AddressData> locations) {
+        AddressData depot = locations.get(0);
+        int n = locations.size();
+        Integer[] order = new Integer[n - 1];
+        double[] angle = new double[n];
+        for (int i = 1; i < n; i++) {
+            order[i - 1] = i;
+            AddressData p = locations.get(i);
+            angle[i] = Math.atan2(p.getLat() - depot.getLat(),
+                    (p.getLon() - depot.getLon()) * Math.cos(Math.toRadians(depot.getLat())));
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> angle[i]));
+
+        // Start the sweep after the widest angular gap so no sector straddles it
+        int startAt = 0;
+        double widestGap = -1;
+        for (int k = 0; k < order.length; k++) {
+            double prev = angle[order[(k - 1 + order.length) % order.length]];
+            double gap = angle[order[k]] - prev;
+            if (gap <= 0)
+                gap += 2 * Math.PI;
+            if (gap > widestGap) {
+                widestGap = gap;
+                startAt = k;
+            }
+        }
+
+        // Cluster size alone decides the count: more, smaller sectors would only add stitching seams
+        int numClusters = Math.min((int) Math.ceil((double) order.length / clusterSize), order.length);
+
+        List<int[]> clusters = new ArrayList<>();
+        int offset = 0;
+        for (int c = 0; c < numClusters; c++) {
+            int size = order.length / numClusters + (c < order.length % numClusters ? 1 : 0);
+            int[] cluster = new int[size];
+            for (int k = 0; k < size; k++)
+                cluster[k] = order[(startAt + offset + k) % order.length];
+            offset += size;
+            clusters.add(cluster);
+        }
+        return clusters;
+    }
+
+    /**
+     * Solves one cluster with the warehouse as sub-index 0 and returns the visiting
+     * order of the cluster's stops as original indices (warehouse stripped).
+     */
+    private int[] solveCluster(int[] cluster, double[][] distMatrix,
+            Function<double[][], List<Integer>> subSolver) {
+        int m = cluster.length + 1;
+        int[] global = new int[m];
+        global[0] = 0;
+        System.arraycopy(cluster, 0, global, 1, cluster.length);
+
+        double[][] sub = new double[m][m];
+        for (int i = 0; i < m; i++)
+            for (int j = 0; j < m; j++)
+                sub[i][j] = distMatrix[global[i]][global[j]];
+
+        List<Integer> subTour = subSolver.apply(sub);
+        int[] path = new int[cluster.length];
+        int k = 0;
+        for (int idx : subTour) {
+            if (idx != 0)
+                path[k++] = global[idx];
+        }
+        return path;
+    }
+
+    // Picks the orientation that is cheaper to enter from the previous stop, including the
+    // internal cost change since road matrices are not symmetric.
+    private boolean shouldReverse(int[] path, int from, double[][] distMatrix) {
+        double forward = distMatrix[from][path[0]];
+        double backward = distMatrix[from][path[path.length - 1]];
+        for (int i = 0; i < path.length - 1; i++) {
+            forward += distMatrix[path[i]][path[i + 1]];
+            backward += distMatrix[path[i + 1]][path[i]];
+        }
+        return backward < forward;
+    }
+
+    private void reverse(int[] path) {
+        for (int i = 0, j = path.length - 1; i < j; i++, j--) {
+            int t = path[i];
+            path[i] = path[j];
+            path[j] = t;
+        }
+    }
+
+    // 2-Opt restricted to a window around each junction; the window endpoints stay fixed
+    private void refineBoundaries(List<Integer> tour, List<Integer> boundaries, double[][] distMatrix) {
+        for (int boundary : boundaries) {
+            int from = Math.max(0, boundary - boundaryWindow);
+            int to = Math.min(tour.size() - 1, boundary + boundaryWindow);
+            List<Integer> window = tour.subList(from, to + 1);
+            List<Integer> improved = solverService.apply2Opt(window, distMatrix);
+            if (solverService.calculateTotalDistance(improved, distMatrix) < solverService
+                    .calculateTotalDistance(window, distMatrix)) {
+                for (int k = 0; k < improved.size(); k++)
+                    window.set(k, improved.get(k));
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.tsp.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Early-stop condition shared between a search and the lower bound that is
+ * computed next to it: the search may stop once its best cost is within
+ * {@code target} (a fraction, 0.01 = 1%) of the bound. Until the bound is
+ * available the target is never reached.
+ */
+public class GapTarget {
+
+    public static final GapTarget NONE = new GapTarget(CompletableFuture.completedFuture(0.0), 0);
+
+    private final CompletableFuture<Double> bound;
+    private final double target;
+
+    public GapTarget(CompletableFuture<Double> bound, double target) {
+        this.bound = bound;
+        this.target = target;
+    }
+
+    public boolean reached(double cost) {
+        if (target <= 0)
+            return false;
+        Double lb = bound.getNow(null);
+        return lb != null && lb > 0 && cost <= lb * (1 + target);
+    }
+}
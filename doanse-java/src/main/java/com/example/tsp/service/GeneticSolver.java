@@ -0,0 +1,266 @@
+package com.example.tsp.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Memetic island-model genetic algorithm.
+ * <p>
+ * Every island evolves its own population of {@code int[]} tours (warehouse
+ * excluded; it is implicitly first and last) with order crossover (OX), a
+ * random segment-reversal mutation and 2-Opt/Or-opt improvement of each
+ * child. Islands run in parallel on the solver pool. Between epochs the best
+ * tour of every island migrates to the next island in a ring, replacing
+ * its worst tour. The search stops when the time budget runs out or the
+ * best tour has not improved for a number of epochs.
+ */
+@Service
+@RequiredArgsConstructor
+public class GeneticSolver {
+
+    private static final int INIT_PERTURBATIONS = 3;
+    private static final int MAX_STALL_EPOCHS = 20;
+
+    private final SolverService solverService;
+    private final ForkJoinPool solverExecutor;
+
+    @Value("${tsp.genetic.time-budget-ms:2000}")
+    private long timeBudgetMs;
+
+    @Value("${tsp.genetic.population-size:24}")
+    private int populationSize;
+
+    @Value("${tsp.genetic.generations-per-epoch:10}")
+    private int generationsPerEpoch;
+
+    @Value("${tsp.genetic.mutation-rate:0.3}")
+    private double mutationRate;
+
+    public List<Integer> solve(double[][] distMatrix) {
+        return solve(distMatrix, timeBudgetMs);
+    }
+
+    public List<Integer> solve(double[][] distMatrix, GapTarget stop) {
+        return solve(distMatrix, timeBudgetMs, stop);
+    }
+
+    public List<Integer> solve(double[][] distMatrix, long budgetMs) {
+        return solve(distMatrix, budgetMs, GapTarget.NONE);
+    }
+
+    public List<Integer> solve(double[][] distMatrix, long budgetMs, GapTarget stop) {
+        int n = distMatrix.length;
+        if (n < 5)
+            return solverService.apply2Opt(solverService.runNearestNeighbor(distMatrix), distMatrix);
+
+        long deadline = System.nanoTime() + budgetMs * 1_000_000L;
+        int[][] neighbors = solverService.buildNeighborLists(distMatrix, SolverService.NEIGHBOR_LIST_SIZE);
+        int[] seed = toGenes(solverService.apply2OptOrOpt(solverService.runNearestNeighbor(distMatrix), distMatrix,
+                neighbors));
+
+        int numIslands = Math.max(2, solverExecutor.getParallelism());
+        List<Island> islands = new ArrayList<>();
+        for (int i = 0; i < numIslands; i++)
+            islands.add(new Island(distMatrix, neighbors, seed, new SplittableRandom(System.nanoTime() + i)));
+
+        List<Callable<Void>> epoch = new ArrayList<>();
+        for (Island island : islands)
+            epoch.add(() -> {
+                island.evolve(generationsPerEpoch, deadline);
+                return null;
+            });
+
+        double bestCost = Double.POSITIVE_INFINITY;
+        int stall = 0;
+        while (System.nanoTime() < deadline && stall < MAX_STALL_EPOCHS && !stop.reached(bestCost)) {
+            solverExecutor.invokeAll(epoch);
+            migrate(islands);
+
+            double epochBest = bestIsland(islands).bestCost();
+            if (epochBest < bestCost - 1e-6) {
+                bestCost = epochBest;
+                stall = 0;
+            } else {
+                stall++;
+            }
+        }
+        return toPath(bestIsland(islands).best());
+    }
+
+    private Island bestIsland(List<Island> islands) {
+        Island best = islands.get(0);
+        for (Island island : islands) {
+            if (island.bestCost() < best.bestCost())
+                best = island;
+        }
+        return best;
+    }
+
+    // Ring migration: best of island i replaces worst of island i+1
+    private void migrate(List<Island> islands) {
+        int[][] emigrants = new int[islands.size()][];
+        for (int i = 0; i < islands.size(); i++)
+            emigrants[i] = islands.get(i).best().clone();
+        for (int i = 0; i < islands.size(); i++)
+            islands.get((i + 1) % islands.size()).accept(emigrants[i]);
+    }
+
+    private static int[] toGenes(List<Integer> path) {
+        int[] genes = new int[path.size() - 2];
+        for (int i = 1; i < path.size() - 1; i++)
+            genes[i - 1] = path.get(i);
+        return genes;
+    }
+
+    private static List<Integer> toPath(int[] genes) {
+        List<Integer> path = new ArrayList<>(genes.length + 2);
+        path.add(0);
+        for (int g : genes)
+            path.add(g);
+        path.add(0);
+        return path;
+    }
+
+    static double tourCost(int[] genes, double[][] d) {
+        double cost = d[0][genes[0]] + d[genes[genes.length - 1]][0];
+        for (int i = 0; i < genes.length - 1; i++)
+            cost += d[genes[i]][genes[i + 1]];
+        return cost;
+    }
+
+    private class Island {
+        private final double[][] d;
+        private final int[][] neighbors;
+        private final SplittableRandom rand;
+        private final int[][] population;
+        private final double[] costs;
+        private final boolean[] used;
+        private int initialized;
+
+        Island(double[][] d, int[][] neighbors, int[] seed, SplittableRandom rand) {
+            this.d = d;
+            this.neighbors = neighbors;
+            this.rand = rand;
+            this.population = new int[populationSize][];
+            this.costs = new double[populationSize];
+            this.used = new boolean[d.length];
+
+            // Start from the seed everywhere; initialize() diversifies on the island's own thread
+            double seedCost = tourCost(seed, d);
+            for (int i = 0; i < populationSize; i++) {
+                population[i] = seed;
+                costs[i] = seedCost;
+            }
+            initialized = 1;
+        }
+
+        // Perturbed and re-optimized copies of the seed tour
+        private void initialize(long deadline) {
+            while (initialized < populationSize && System.nanoTime() < deadline) {
+                int[] genes = population[0].clone();
+                for (int k = 0; k < INIT_PERTURBATIONS; k++)
+                    reverseRandomSegment(genes);
+                genes = improve(genes);
+                population[initialized] = genes;
+                costs[initialized] = tourCost(genes, d);
+                initialized++;
+            }
+        }
+
+        void evolve(int generations, long deadline) {
+            initialize(deadline);
+            for (int g = 0; g < generations && System.nanoTime() < deadline; g++) {
+                int[] child = orderCrossover(population[tournament()], population[tournament()]);
+                if (rand.nextDouble() < mutationRate)
+                    reverseRandomSegment(child);
+                child = improve(child);
+                replaceWorst(child, tourCost(child, d));
+            }
+        }
+
+        int[] best() {
+            return population[bestIndex()];
+        }
+
+        double bestCost() {
+            return costs[bestIndex()];
+        }
+
+        void accept(int[] immigrant) {
+            replaceWorst(immigrant, tourCost(immigrant, d));
+        }
+
+        private int bestIndex() {
+            int best = 0;
+            for (int i = 1; i < populationSize; i++) {
+                if (costs[i] < costs[best])
+                    best = i;
+            }
+            return best;
+        }
+
+        private void replaceWorst(int[] genes, double cost) {
+            int worst = 0;
+            for (int i = 0; i < populationSize; i++) {
+                // Skip exact cost duplicates to keep the population diverse
+                if (Math.abs(costs[i] - cost) < 1e-6)
+                    return;
+                if (costs[i] > costs[worst])
+                    worst = i;
+            }
+            if (cost < costs[worst]) {
+                population[worst] = genes;
+                costs[worst] = cost;
+            }
+        }
+
+        private int tournament() {
+            int a = rand.nextInt(populationSize), b = rand.nextInt(populationSize);
+            return costs[a] <= costs[b] ? a : b;
+        }
+
+        // OX: keep p1[i..j] in place, fill the rest in p2's order starting after j
+        private int[] orderCrossover(int[] p1, int[] p2) {
+            int m = p1.length;
+            int i = rand.nextInt(m), j = rand.nextInt(m);
+            if (i > j) {
+                int t = i;
+                i = j;
+                j = t;
+            }
+            int[] child = new int[m];
+            Arrays.fill(used, false);
+            for (int k = i; k <= j; k++) {
+                child[k] = p1[k];
+                used[p1[k]] = true;
+            }
+            int write = (j + 1) % m;
+            for (int k = 0; k < m; k++) {
+                int gene = p2[(j + 1 + k) % m];
+                if (!used[gene]) {
+                    child[write] = gene;
+                    write = (write + 1) % m;
+                }
+            }
+            return child;
+        }
+
+        private void reverseRandomSegment(int[] genes) {
+            int i = rand.nextInt(genes.length), j = rand.nextInt(genes.length);
+            for (int a = Math.min(i, j), b = Math.max(i, j); a < b; a++, b--) {
+                int t = genes[a];
+                genes[a] = genes[b];
+                genes[b] = t;
+            }
+        }
+
+        private int[] improve(int[] genes) {
+            return toGenes(solverService.apply2OptOrOpt(toPath(genes), d, neighbors));
+        }
+    }
+}
@@ -3,40 +3,81 @@ package com.example.tsp.service;
 import com.example.tsp.model.AddressData;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+@Slf4j
 @Service
+@RequiredArgsConstructor
 public class GeocodingService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final String NOMINATIM_URL = "https://nominatim.openstreetmap.org/search";
+    private final TspMetrics metrics;
+    private final OutboundHttpClient http;
+    private final ObjectMapper objectMapper;
+    private static final String UPSTREAM = "nominatim";
+    private static final int MAX_ATTEMPTS = 3;
 
-    public AddressData getCoordsFromAddress(String address) {
+    @Value("${tsp.geocoding.url:https://nominatim.openstreetmap.org/search}")
+    private String nominatimUrl;
 
-        AddressData result = queryNominatim(address);
+    /**
+     * Tries the query variants one after another until one resolves; completes
+     * with null if none does. Never completes exceptionally.
+     */
+    public CompletableFuture<AddressData> getCoordsFromAddressAsync(String address) {
+        CompletableFuture<AddressData> result = queryNominatim(address, "raw");
 
-        if (result == null && !containsVietnam(address)) {
-            result = queryNominatim(address + ", Vietnam");
+        if (!containsVietnam(address)) {
+            result = orElse(result, () -> queryNominatim(address + ", Vietnam", "country_suffix"));
         }
 
-        if (result == null) {
-            String heuristic = addCommaBeforeCity(address);
-            if (!heuristic.equals(address)) {
-                result = queryNominatim(heuristic);
-                if (result == null && !containsVietnam(heuristic)) {
-                    result = queryNominatim(heuristic + ", Vietnam");
-                }
+        String heuristic = addCommaBeforeCity(address);
+        if (!heuristic.equals(address)) {
+            result = orElse(result, () -> queryNominatim(heuristic, "city_comma"));
+            if (!containsVietnam(heuristic)) {
+                result = orElse(result, () -> queryNominatim(heuristic + ", Vietnam", "city_comma_country_suffix"));
             }
         }
         return result;
     }
 
+    /**
+     * Geocodes several addresses one after another (Nominatim allows one request
+     * at a time) without blocking the caller. Repeated addresses are looked up
+     * once; the map keeps the input order and holds null for addresses that could
+     * not be resolved.
+     */
+    public CompletableFuture<Map<String, AddressData>> getCoordsFromAddressesAsync(Collection<String> addresses) {
+        Map<String, AddressData> res = new LinkedHashMap<>();
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (String addr : addresses) {
+            if (res.containsKey(addr))
+                continue;
+            res.put(addr, null);
+            chain = chain.thenCompose(ignored -> getCoordsFromAddressAsync(addr))
+                    .thenAccept(data -> res.put(addr, data));
+        }
+        return chain.thenApply(ignored -> res);
+    }
+
+    private static CompletableFuture<AddressData> orElse(CompletableFuture<AddressData> first,
+            Supplier<CompletableFuture<AddressData>> next) {
+        return first.thenCompose(r -> r != null ? CompletableFuture.completedFuture(r) : next.get());
+    }
+
     private boolean containsVietnam(String addr) {
         String lower = addr.toLowerCase();
         return lower.contains("vietnam") || lower.contains("việt nam");
@@ -62,41 +103,46 @@ public class GeocodingService {
         return address;
     }
 
-    private AddressData queryNominatim(String query) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("User-Agent", "TSP-Solver-App/1.0");
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-
-        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(NOMINATIM_URL)
+    private CompletableFuture<AddressData> queryNominatim(String query, String variant) {
+        URI uri = UriComponentsBuilder.fromHttpUrl(nominatimUrl)
                 .queryParam("q", query)
                 .queryParam("format", "json")
-                .queryParam("limit", 1);
-
-        String url = builder.build().toUriString();
+                .queryParam("limit", 1)
+                .build()
+                .encode()
+                .toUri();
+
+        log.debug("Querying Nominatim: {}", uri);
+        return http.withRetry(MAX_ATTEMPTS, attempt -> {
+            if (attempt > 0)
+                metrics.countGeocodeRetry();
+            Timer.Sample sample = metrics.startTimer();
+            return http.get(UPSTREAM, uri, Map.of("User-Agent", "TSP-Solver-App/1.0"))
+                    .thenApply(this::parseFirstResult)
+                    .whenComplete((data, ex) -> {
+                        metrics.recordGeocodeQuery(sample, variant, ex != null ? OutboundHttpClient.outcomeOf(ex)
+                                : data != null ? "hit" : "miss");
+                        if (ex != null)
+                            log.warn("Error calling Nominatim API for '{}' (attempt {}): {}", query, attempt + 1,
+                                    OutboundHttpClient.unwrap(ex).getMessage());
+                    });
+        }).exceptionally(ex -> null);
+    }
 
+    private AddressData parseFirstResult(String body) {
         try {
-            System.out.println("DEBUG: Querying Nominatim: " + url);
-            ResponseEntity<String> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    entity,
-                    String.class);
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode root = mapper.readTree(response.getBody());
-                if (root.isArray() && root.size() > 0) {
-                    JsonNode first = root.get(0);
-                    AddressData data = new AddressData();
-                    data.setDisplayName(first.get("display_name").asText());
-                    data.setLat(first.get("lat").asDouble());
-                    data.setLon(first.get("lon").asDouble());
-                    return data;
-                }
+            JsonNode root = objectMapper.readTree(body);
+            if (root.isArray() && root.size() > 0) {
+                JsonNode first = root.get(0);
+                AddressData data = new AddressData();
+                data.setDisplayName(first.get("display_name").asText());
+                data.setLat(first.get("lat").asDouble());
+                data.setLon(first.get("lon").asDouble());
+                return data;
             }
-        } catch (Exception e) {
-            System.err.println("Error calling Nominatim API for '" + query + "': " + e.getMessage());
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return null;
     }
 }
@@ -0,0 +1,311 @@
+package com.example.tsp.service;
+
+import com.example.tsp.model.RouteResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lower bounds on the optimal tour, used to report how far a heuristic tour
+ * can be from optimal and to stop searches early (see {@link GapTarget}).
+ * <p>
+ * The main bound is Held-Karp: 1-trees under node penalties improved by
+ * subgradient ascent. On asymmetric matrices it runs on min(d(i,j), d(j,i)),
+ * which any directed tour costs at least, and the assignment-problem bound
+ * is computed as well; the larger of the two is reported.
+ * <p>
+ * The ascent stops early once it stagnates. Callers that only annotate results
+ * do not wait for it either: {@link #annotate} takes the best 1-tree found so
+ * far (every 1-tree is a valid bound) and stops the ascent.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LowerBoundService {
+
+    private static final int MIN_ITERATIONS = 50;
+    private static final int MAX_ITERATIONS = 20_000;
+    private static final double INITIAL_STEP_RATIO = 0.01;
+    private static final double FINAL_STEP_RATIO = 1e-3;
+    // Ascent stops after this many iterations without a relative gain above STALL_GAIN
+    private static final int STALL_ITERATIONS = 100;
+    private static final double STALL_GAIN = 1e-4;
+    private static final double BIG = 1e15;
+
+    private final ForkJoinPool solverExecutor;
+
+    @Value("${tsp.bound.time-budget-ms:1000}")
+    private long timeBudgetMs;
+
+    @Value("${tsp.bound.max-size:3000}")
+    private int maxSize;
+
+    @Value("${tsp.bound.assignment-max-size:400}")
+    private int assignmentMaxSize;
+
+    @Value("${tsp.bound.gap-target-percent:1.0}")
+    private double gapTargetPercent;
+
+    // How long annotate waits for a running bound before it takes the best so far
+    @Value("${tsp.bound.grace-ms:50}")
+    private long graceMs;
+
+    // Bound future that also exposes the best 1-tree so far; completing it early stops the ascent
+    private static class Ascent extends CompletableFuture<Double> {
+        private volatile double best;
+    }
+
+    /**
+     * Starts the bound on the solver pool. Completes with 0 (no information)
+     * for instances above tsp.bound.max-size or with unreachable stops.
+     */
+    public CompletableFuture<Double> startAsync(double[][] distMatrix) {
+        if (distMatrix.length > maxSize)
+            return CompletableFuture.completedFuture(0.0);
+        Ascent ascent = new Ascent();
+        solverExecutor.execute(() -> {
+            try {
+                ascent.complete(compute(distMatrix, ascent));
+            } catch (RuntimeException e) {
+                log.warn("Lower bound failed: {}", e.getMessage());
+                ascent.complete(0.0);
+            }
+        });
+        return ascent;
+    }
+
+    public GapTarget gapTarget(CompletableFuture<Double> bound) {
+        return new GapTarget(bound, gapTargetPercent / 100.0);
+    }
+
+    /**
+     * Fills in lower bound and gap on every result. Waits at most tsp.bound.grace-ms
+     * for the bound; after that the best bound so far is used and the ascent stops.
+     */
+    public void annotate(List<RouteResult> results, CompletableFuture<Double> bound) {
+        double lb = settle(bound);
+        if (lb <= 0)
+            return;
+        for (RouteResult r : results) {
+            r.setLowerBoundKm(lb / 1000.0);
+            r.setGapPercent(Math.max(0, (r.getDistanceKm() * 1000.0 - lb) / lb * 100.0));
+        }
+    }
+
+    private double settle(CompletableFuture<Double> bound) {
+        try {
+            return bound.get(graceMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (bound instanceof Ascent ascent)
+                ascent.complete(ascent.best);
+            return bound.getNow(0.0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (ExecutionException e) {
+            return 0;
+        }
+    }
+
+    public double compute(double[][] d) {
+        return compute(d, new Ascent());
+    }
+
+    private double compute(double[][] d, Ascent ascent) {
+        int n = d.length;
+        if (n < 2)
+            return 0;
+        if (n == 2)
+            return d[0][1] + d[1][0];
+
+        long deadline = System.nanoTime() + timeBudgetMs * 1_000_000L;
+        boolean symmetric = isSymmetric(d);
+        double bound = heldKarp(d, symmetric, deadline, ascent);
+        if (!Double.isFinite(bound) || bound >= BIG)
+            bound = 0;
+        // An assignment that had to use a missing (BIG) edge is no bound at all; keep Held-Karp's then
+        if (!symmetric && n <= assignmentMaxSize && !ascent.isDone()) {
+            double ap = assignment(d);
+            if (ap < BIG)
+                bound = Math.max(bound, ap);
+        }
+        return bound;
+    }
+
+    private static boolean isSymmetric(double[][] d) {
+        for (int i = 0; i < d.length; i++)
+            for (int j = i + 1; j < d.length; j++)
+                if (d[i][j] != d[j][i])
+                    return false;
+        return true;
+    }
+
+    private static double weight(double[][] d, boolean symmetric, int i, int j) {
+        return symmetric ? d[i][j] : Math.min(d[i][j], d[j][i]);
+    }
+
+    /**
+     * Held-Karp subgradient ascent. Steps start at 1% of the mean 1-tree edge and
+     * decay geometrically to 0.1% of that over as many iterations as the time
+     * budget allows (estimated from the first 1-tree). Stops early when the bound
+     * stagnates or the caller has settled for the best so far.
+     */
+    private double heldKarp(double[][] d, boolean symmetric, long deadline, Ascent ascent) {
+        int n = d.length;
+        double[] pi = new double[n];
+        int[] degree = new int[n];
+
+        long started = System.nanoTime();
+        double best = oneTree(d, symmetric, pi, degree);
+        if (!Double.isFinite(best))
+            return 0;
+        long perIteration = Math.max(1, System.nanoTime() - started);
+        int iterations = (int) Math.max(MIN_ITERATIONS,
+                Math.min(MAX_ITERATIONS, (deadline - System.nanoTime()) / perIteration));
+        double decay = Math.pow(FINAL_STEP_RATIO, 1.0 / iterations);
+        double step = INITIAL_STEP_RATIO * best / n;
+        ascent.best = best;
+
+        int stalled = 0;
+        for (int iter = 0; iter < iterations && stalled < STALL_ITERATIONS && System.nanoTime() < deadline
+                && !ascent.isDone(); iter++) {
+            boolean tour = true;
+            for (int v = 0; v < n; v++) {
+                pi[v] += step * (degree[v] - 2);
+                tour &= degree[v] == 2;
+            }
+            // Every degree is 2: the 1-tree is a tour, so the bound is tight
+            if (tour)
+                break;
+            step *= decay;
+            double value = oneTree(d, symmetric, pi, degree);
+            stalled = value > best * (1 + STALL_GAIN) ? 0 : stalled + 1;
+            if (value > best) {
+                best = value;
+                ascent.best = best;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Minimum 1-tree (MST on stops 1..n-1 plus the two cheapest edges at stop 0)
+     * under penalties pi; returns its cost minus 2 * sum(pi) and the degrees.
+     */
+    private double oneTree(double[][] d, boolean symmetric, double[] pi, int[] degree) {
+        int n = d.length;
+        Arrays.fill(degree, 0);
+        double[] key = new double[n];
+        int[] parent = new int[n];
+        boolean[] inTree = new boolean[n];
+        Arrays.fill(key, Double.POSITIVE_INFINITY);
+        key[1] = 0;
+        parent[1] = -1;
+        double total = 0;
+        for (int step = 1; step < n; step++) {
+            int u = -1;
+            for (int v = 1; v < n; v++)
+                if (!inTree[v] && (u == -1 || key[v] < key[u]))
+                    u = v;
+            inTree[u] = true;
+            total += key[u];
+            if (parent[u] >= 0) {
+                degree[u]++;
+                degree[parent[u]]++;
+            }
+            for (int v = 1; v < n; v++) {
+                if (inTree[v])
+                    continue;
+                double w = weight(d, symmetric, u, v) + pi[u] + pi[v];
+                if (w < key[v]) {
+                    key[v] = w;
+                    parent[v] = u;
+                }
+            }
+        }
+
+        int first = -1, second = -1;
+        double w1 = Double.POSITIVE_INFINITY, w2 = Double.POSITIVE_INFINITY;
+        for (int v = 1; v < n; v++) {
+            double w = weight(d, symmetric, 0, v) + pi[0] + pi[v];
+            if (w < w1) {
+                second = first;
+                w2 = w1;
+                first = v;
+                w1 = w;
+            } else if (w < w2) {
+                second = v;
+                w2 = w;
+            }
+        }
+        total += w1 + w2;
+        degree[0] = 2;
+        degree[first]++;
+        degree[second]++;
+
+        double piSum = 0;
+        for (double p : pi)
+            piSum += p;
+        return total - 2 * piSum;
+    }
+
+    // Hungarian algorithm (potentials, O(n^3)); self-loops and unreachable pairs are forbidden
+    private static double assignment(double[][] d) {
+        int n = d.length;
+        double[] u = new double[n + 1], v = new double[n + 1];
+        int[] match = new int[n + 1], way = new int[n + 1];
+        for (int i = 1; i <= n; i++) {
+            match[0] = i;
+            int j0 = 0;
+            double[] minv = new double[n + 1];
+            boolean[] used = new boolean[n + 1];
+            Arrays.fill(minv, Double.POSITIVE_INFINITY);
+            do {
+                used[j0] = true;
+                int i0 = match[j0], j1 = 0;
+                double delta = Double.POSITIVE_INFINITY;
+                for (int j = 1; j <= n; j++) {
+                    if (used[j])
+                        continue;
+                    double c = i0 == j || !Double.isFinite(d[i0 - 1][j - 1]) ? BIG : d[i0 - 1][j - 1];
+                    double cur = c - u[i0] - v[j];
+                    if (cur < minv[j]) {
+                        minv[j] = cur;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= n; j++) {
+                    if (used[j]) {
+                        u[match[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (match[j0] != 0);
+            do {
+                int j1 = way[j0];
+                match[j0] = match[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+        double cost = 0;
+        for (int j = 1; j <= n; j++)
+            cost += match[j] == j ? BIG : d[match[j] - 1][j - 1];
+        return cost;
+    }
+}
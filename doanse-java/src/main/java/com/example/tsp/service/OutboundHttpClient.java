@@ -0,0 +1,156 @@
+package com.example.tsp.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+/**
+ * Asynchronous GETs to third-party services with a per-request timeout, one
+ * circuit breaker per upstream and retries with jittered exponential backoff.
+ * Backoff delays are scheduled on {@link CompletableFuture#delayedExecutor},
+ * so no thread sleeps between attempts.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboundHttpClient {
+
+    private final HttpClient httpClient;
+    private final TspMetrics metrics;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    @Value("${tsp.http.read-timeout-ms:10000}")
+    private long readTimeoutMs;
+
+    @Value("${tsp.http.backoff-base-ms:250}")
+    private long backoffBaseMs;
+
+    @Value("${tsp.http.backoff-max-ms:4000}")
+    private long backoffMaxMs;
+
+    @Value("${tsp.http.breaker.failure-threshold:5}")
+    private int breakerFailureThreshold;
+
+    @Value("${tsp.http.breaker.open-ms:30000}")
+    private long breakerOpenMs;
+
+    /**
+     * Failure of an outbound call. {@code outcome} is a short metric tag
+     * (timeout, circuit_open, http_503, an OSRM code, ...).
+     */
+    @Getter
+    public static class UpstreamException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final String outcome;
+
+        public UpstreamException(String message, String outcome) {
+            super(message);
+            this.outcome = outcome;
+        }
+    }
+
+    public CircuitBreaker breaker(String upstream) {
+        return breakers.computeIfAbsent(upstream, name -> {
+            CircuitBreaker breaker = new CircuitBreaker(name, breakerFailureThreshold, breakerOpenMs);
+            metrics.registerCircuitBreaker(breaker);
+            return breaker;
+        });
+    }
+
+    /**
+     * Single attempt. Completes with the body of a 2xx response, otherwise
+     * exceptionally with an {@link UpstreamException}. Timeouts, connection errors,
+     * 429 and 5xx count against the breaker; other 4xx do not.
+     */
+    public CompletableFuture<String> get(String upstream, URI uri, Map<String, String> headers) {
+        CircuitBreaker breaker = breaker(upstream);
+        if (!breaker.tryAcquire())
+            return CompletableFuture.failedFuture(
+                    new UpstreamException(upstream + " circuit is open", "circuit_open"));
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(readTimeoutMs))
+                .GET();
+        headers.forEach(request::header);
+
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString())
+                .handle((response, ex) -> {
+                    if (ex != null) {
+                        breaker.onFailure();
+                        Throwable cause = unwrap(ex);
+                        throw new UpstreamException(upstream + ": " + cause.getMessage(),
+                                cause instanceof HttpTimeoutException ? "timeout" : "error");
+                    }
+                    int status = response.statusCode();
+                    if (status == 429 || status >= 500)
+                        breaker.onFailure();
+                    else
+                        breaker.onSuccess();
+                    if (status / 100 != 2)
+                        throw new UpstreamException(upstream + " returned HTTP " + status, "http_" + status);
+                    return response.body();
+                });
+    }
+
+    /**
+     * Runs {@code call} (given the 0-based attempt number) up to {@code maxAttempts}
+     * times until it completes normally. An open circuit is not retried.
+     */
+    public <T> CompletableFuture<T> withRetry(int maxAttempts, IntFunction<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(0, maxAttempts, call, result);
+        return result;
+    }
+
+    private <T> void attempt(int attempt, int maxAttempts, IntFunction<CompletableFuture<T>> call,
+            CompletableFuture<T> result) {
+        CompletableFuture<T> future;
+        try {
+            future = call.apply(attempt);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((value, ex) -> {
+            if (ex == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = unwrap(ex);
+            boolean circuitOpen = cause instanceof UpstreamException u && "circuit_open".equals(u.getOutcome());
+            if (attempt + 1 >= maxAttempts || circuitOpen) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            CompletableFuture.delayedExecutor(backoffMs(attempt), TimeUnit.MILLISECONDS)
+                    .execute(() -> attempt(attempt + 1, maxAttempts, call, result));
+        });
+    }
+
+    // "Full jitter": uniform in [0, min(max, base * 2^attempt)]
+    long backoffMs(int attempt) {
+        long cap = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    public static Throwable unwrap(Throwable ex) {
+        while ((ex instanceof CompletionException || ex instanceof ExecutionException) && ex.getCause() != null)
+            ex = ex.getCause();
+        return ex;
+    }
+
+    public static String outcomeOf(Throwable ex) {
+        Throwable cause = unwrap(ex);
+        return cause instanceof UpstreamException u ? u.getOutcome() : "error";
+    }
+}
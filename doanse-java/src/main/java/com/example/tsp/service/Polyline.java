@@ -0,0 +1,39 @@
+package com.example.tsp.service;
+
+import com.example.tsp.model.AddressData;
+
+import java.util.List;
+
+/**
+ * Google encoded polyline format, precision 1e-5 degrees (about 1 m). Each
+ * coordinate is the zig-zag encoded delta to the previous point written in
+ * 5-bit chunks as printable ASCII, so nearby stops take a few bytes each.
+ */
+public final class Polyline {
+
+    private Polyline() {
+    }
+
+    public static String encode(List<AddressData> points) {
+        StringBuilder sb = new StringBuilder(points.size() * 8);
+        long prevLat = 0, prevLon = 0;
+        for (AddressData p : points) {
+            long lat = Math.round(p.getLat() * 1e5);
+            long lon = Math.round(p.getLon() * 1e5);
+            appendValue(sb, lat - prevLat);
+            appendValue(sb, lon - prevLon);
+            prevLat = lat;
+            prevLon = lon;
+        }
+        return sb.toString();
+    }
+
+    private static void appendValue(StringBuilder sb, long delta) {
+        long v = delta < 0 ? ~(delta << 1) : delta << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+}
@@ -3,20 +3,49 @@ package com.example.tsp.service;
 import com.example.tsp.model.AddressData;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+@Slf4j
 @Service
+@RequiredArgsConstructor
 public class RoutingService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final String OSRM_URL_TEMPLATE = "http://router.project-osrm.org/table/v1/driving/%s?annotations=distance,duration";
+    private final TspMetrics metrics;
+    private final OutboundHttpClient http;
+    private final ObjectMapper objectMapper;
+    private static final String UPSTREAM = "osrm";
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String TABLE_PATH = "/table/v1/driving/%s?annotations=distance,duration";
+
+    @Value("${tsp.routing.url:http://router.project-osrm.org}")
+    private String osrmUrl;
+
+    // Largest coordinate count a single OSRM table request may carry
+    @Value("${tsp.routing.max-table-size:100}")
+    private int maxTableSize;
+
+    // Tile requests of one combined matrix that may be in flight at once
+    @Value("${tsp.routing.max-concurrent-tiles:4}")
+    private int maxConcurrentTiles;
 
     @Data
     @AllArgsConstructor
@@ -26,46 +55,133 @@ public class RoutingService {
         private double[][] durations;
     }
 
-    public RoutingMatrix getRouteInfo(List<AddressData> locations) {
-        String locationsStr = locations.stream()
+    // One sources x destinations block of a combined matrix
+    @AllArgsConstructor
+    private static class Tile {
+        private final String url;
+        private final int sStart, dStart, rows, cols;
+    }
+
+    public CompletableFuture<RoutingMatrix> getRouteInfoAsync(List<AddressData> locations) {
+        return fetchTable(String.format(osrmUrl + TABLE_PATH, toCoordinates(locations)));
+    }
+
+    /**
+     * Like {@link #getRouteInfoAsync} but splits inputs larger than the OSRM table limit
+     * into tiles (sources x destinations blocks) and assembles the full matrix. At most
+     * tsp.routing.max-concurrent-tiles tiles are requested at a time. Completes with
+     * null if any tile fails; the remaining tiles are then not requested.
+     */
+    public CompletableFuture<RoutingMatrix> getCombinedRouteInfoAsync(List<AddressData> locations) {
+        int n = locations.size();
+        if (n <= maxTableSize)
+            return getRouteInfoAsync(locations);
+
+        int block = Math.max(1, maxTableSize / 2);
+        List<Tile> tiles = new ArrayList<>();
+        for (int si = 0; si < n; si += block) {
+            for (int di = 0; di < n; di += block) {
+                int sEnd = Math.min(n, si + block), dEnd = Math.min(n, di + block);
+                boolean diagonal = si == di;
+                List<AddressData> coords = new ArrayList<>(locations.subList(si, sEnd));
+                if (!diagonal)
+                    coords.addAll(locations.subList(di, dEnd));
+
+                int sources = sEnd - si;
+                String url = String.format(osrmUrl + TABLE_PATH, toCoordinates(coords))
+                        + "&sources=" + indexList(0, sources)
+                        + "&destinations=" + (diagonal ? indexList(0, sources)
+                                : indexList(sources, sources + dEnd - di));
+                tiles.add(new Tile(url, si, di, sources, dEnd - di));
+            }
+        }
+
+        double[][] distances = new double[n][n];
+        double[][] durations = new double[n][n];
+        AtomicInteger nextTile = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<Void>> lanes = new ArrayList<>();
+        for (int k = 0; k < Math.min(Math.max(1, maxConcurrentTiles), tiles.size()); k++)
+            lanes.add(fetchTiles(tiles, nextTile, failed, distances, durations));
+        return CompletableFuture.allOf(lanes.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> failed.get() ? null : new RoutingMatrix(distances, durations));
+    }
+
+    // One lane: takes the next unclaimed tile, copies it in once it arrives and moves on
+    private CompletableFuture<Void> fetchTiles(List<Tile> tiles, AtomicInteger nextTile, AtomicBoolean failed,
+            double[][] distances, double[][] durations) {
+        int i = nextTile.getAndIncrement();
+        if (i >= tiles.size() || failed.get())
+            return CompletableFuture.completedFuture(null);
+        Tile tile = tiles.get(i);
+        return fetchTable(tile.url).thenCompose(block -> {
+            if (block == null) {
+                failed.set(true);
+                return CompletableFuture.completedFuture(null);
+            }
+            // Tiles write disjoint blocks, so lanes never touch the same cells
+            for (int r = 0; r < tile.rows; r++) {
+                System.arraycopy(block.getDistances()[r], 0, distances[tile.sStart + r], tile.dStart, tile.cols);
+                System.arraycopy(block.getDurations()[r], 0, durations[tile.sStart + r], tile.dStart, tile.cols);
+            }
+            return fetchTiles(tiles, nextTile, failed, distances, durations);
+        });
+    }
+
+    private String toCoordinates(List<AddressData> locations) {
+        return locations.stream()
                 .map(l -> l.getLon() + "," + l.getLat())
                 .collect(Collectors.joining(";"));
+    }
+
+    private String indexList(int from, int to) {
+        return IntStream.range(from, to).mapToObj(String::valueOf).collect(Collectors.joining(";"));
+    }
+
+    // Retries with backoff; completes with null once all attempts failed
+    private CompletableFuture<RoutingMatrix> fetchTable(String url) {
+        URI uri = URI.create(url);
+        return http.withRetry(MAX_ATTEMPTS, attempt -> {
+            if (attempt > 0)
+                metrics.countRoutingRetry();
+            Timer.Sample sample = metrics.startTimer();
+            return http.get(UPSTREAM, uri, Map.of())
+                    .thenApply(this::parseTable)
+                    .whenComplete((matrix, ex) -> {
+                        metrics.recordRoutingAttempt(sample, attempt + 1,
+                                ex == null ? "Ok" : OutboundHttpClient.outcomeOf(ex));
+                        if (ex != null)
+                            log.warn("Error calling OSRM API (attempt {}): {}", attempt + 1,
+                                    OutboundHttpClient.unwrap(ex).getMessage());
+                    });
+        }).exceptionally(ex -> null);
+    }
+
+    private RoutingMatrix parseTable(String body) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String code = root.path("code").asText("unknown");
+        if (!"Ok".equals(code))
+            throw new OutboundHttpClient.UpstreamException("OSRM returned " + code, code);
+
+        JsonNode distNode = root.get("distances");
+        JsonNode durNode = root.get("durations");
+
+        int rows = distNode.size();
+        int cols = distNode.get(0).size();
+        double[][] distances = new double[rows][cols];
+        double[][] durations = new double[rows][cols];
 
-        String url = String.format(OSRM_URL_TEMPLATE, locationsStr);
-
-        for (int attempt = 0; attempt < 3; attempt++) {
-            try {
-                String response = restTemplate.getForObject(url, String.class);
-                if (response != null) {
-                    ObjectMapper mapper = new ObjectMapper();
-                    JsonNode root = mapper.readTree(response);
-
-                    if ("Ok".equals(root.path("code").asText())) {
-                        JsonNode distNode = root.get("distances");
-                        JsonNode durNode = root.get("durations");
-
-                        int size = distNode.size();
-                        double[][] distances = new double[size][size];
-                        double[][] durations = new double[size][size];
-
-                        for (int i = 0; i < size; i++) {
-                            for (int j = 0; j < size; j++) {
-                                distances[i][j] = distNode.get(i).get(j).asDouble();
-                                durations[i][j] = durNode.get(i).get(j).asDouble();
-                            }
-                        }
-                        return new RoutingMatrix(distances, durations);
-                    }
-                }
-            } catch (Exception e) {
-                System.err.println("Error calling OSRM API (attempt " + (attempt + 1) + "): " + e.getMessage());
-                try {
-                    Thread.sleep(2000);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                }
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                distances[i][j] = distNode.get(i).get(j).asDouble();
+                durations[i][j] = durNode.get(i).get(j).asDouble();
             }
         }
-        return null;
+        return new RoutingMatrix(distances, durations);
     }
 }
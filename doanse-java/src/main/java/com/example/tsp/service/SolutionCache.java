@@ -0,0 +1,178 @@
+package com.example.tsp.service;
+
+import com.example.tsp.model.AddressData;
+import com.example.tsp.model.CachedSolution;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Size-bounded LRU of solved problems.
+ * <p>
+ * Entries are keyed by a fingerprint of the ordered stop coordinates, the
+ * mode and, for schedules, the time windows and start time. A second, coarser
+ * key (stops and mode only) remembers the last tour for those stops so a
+ * schedule with a new start time or new windows can warm-start from it.
+ * <p>
+ * It also keeps the geocoded stop lists handed out to API clients, under a
+ * short content-derived id, so clients can refer to stops by index instead of
+ * sending them back. When tsp.cache.file is set the cache is loaded at
+ * startup and written back on shutdown.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SolutionCache {
+
+    // 64 bits of SHA-256: short in URLs, collisions negligible at cache sizes
+    private static final int STOP_SET_ID_LENGTH = 16;
+
+    private final TspMetrics metrics;
+    private final ObjectMapper objectMapper;
+
+    @Value("${tsp.cache.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${tsp.cache.file:}")
+    private String file;
+
+    private Map<String, CachedSolution> entries;
+    private Map<String, List<Integer>> tours;
+    private Map<String, List<AddressData>> stopSets;
+
+    @PostConstruct
+    void init() {
+        entries = lru(maxEntries);
+        tours = lru(maxEntries);
+        stopSets = lru(maxEntries);
+        if (file.isBlank() || !Files.exists(Path.of(file)))
+            return;
+        try {
+            Snapshot snapshot = objectMapper.readValue(Path.of(file).toFile(), Snapshot.class);
+            entries.putAll(snapshot.getEntries());
+            tours.putAll(snapshot.getTours());
+            stopSets.putAll(snapshot.getStopSets());
+            log.info("Loaded {} cached solutions from {}", entries.size(), file);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable solution cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    synchronized void persist() {
+        if (file.isBlank())
+            return;
+        try {
+            Path target = Path.of(file);
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), new Snapshot(entries, tours, stopSets));
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write solution cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    public synchronized CachedSolution get(String key) {
+        CachedSolution hit = entries.get(key);
+        metrics.countCacheLookup(hit != null ? "hit" : "miss");
+        return hit;
+    }
+
+    // Last tour seen for the same stops and mode, or null
+    public synchronized List<Integer> warmStart(String stopsKey) {
+        List<Integer> tour = tours.get(stopsKey);
+        if (tour != null)
+            metrics.countCacheLookup("near_hit");
+        return tour;
+    }
+
+    public synchronized void put(String key, String stopsKey, CachedSolution solution) {
+        entries.put(key, solution);
+        if (solution.getTour() != null)
+            tours.put(stopsKey, solution.getTour());
+    }
+
+    /**
+     * Stores the stops and returns their id; the same stops always get the same id.
+     */
+    public synchronized String registerStops(List<AddressData> stops) {
+        StringBuilder sb = new StringBuilder();
+        for (AddressData a : stops)
+            sb.append(String.format(Locale.ROOT, "%s;%.6f,%.6f|", a.getDisplayName(), a.getLat(), a.getLon()));
+        String id = sha256(sb.toString()).substring(0, STOP_SET_ID_LENGTH);
+        stopSets.put(id, List.copyOf(stops));
+        return id;
+    }
+
+    // Stops registered under id, or null once evicted
+    public synchronized List<AddressData> stops(String id) {
+        return stopSets.get(id);
+    }
+
+    public static String fingerprint(List<AddressData> stops, String mode, List<SolverService.TimeWindow> windows,
+            Integer startTimeSec) {
+        StringBuilder sb = new StringBuilder(stopsFingerprintInput(stops, mode));
+        if (windows != null) {
+            for (SolverService.TimeWindow w : windows)
+                sb.append('|').append(w.getEarliest()).append('-').append(w.getLatest());
+        }
+        if (startTimeSec != null)
+            sb.append("|start=").append(startTimeSec);
+        return sha256(sb.toString());
+    }
+
+    public static String stopsFingerprint(List<AddressData> stops, String mode) {
+        return sha256(stopsFingerprintInput(stops, mode));
+    }
+
+    // Coordinates rounded to ~0.1 m so repeated geocoding of the same address matches
+    private static String stopsFingerprintInput(List<AddressData> stops, String mode) {
+        StringBuilder sb = new StringBuilder(mode);
+        for (AddressData a : stops)
+            sb.append(String.format(Locale.ROOT, ";%.6f,%.6f", a.getLat(), a.getLon()));
+        return sb.toString();
+    }
+
+    private static String sha256(String s) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <V> Map<String, V> lru(int capacity) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Snapshot {
+        private Map<String, CachedSolution> entries = new LinkedHashMap<>();
+        private Map<String, List<Integer>> tours = new LinkedHashMap<>();
+        private Map<String, List<AddressData>> stopSets = new LinkedHashMap<>();
+    }
+}
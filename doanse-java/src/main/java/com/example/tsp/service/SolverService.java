@@ -2,8 +2,10 @@ package com.example.tsp.service;
 
 import com.example.tsp.model.AddressData;
 import com.example.tsp.model.AddressData.ScheduleInfo;
+import jakarta.annotation.PostConstruct;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalTime;
@@ -13,6 +15,24 @@ import java.util.*;
 @Service
 public class SolverService {
 
+    // Minimum gain (in matrix units, i.e. metres or seconds) for a move to count as an improvement
+    private static final double EPS = 1e-6;
+
+    // The DP keeps 9 bytes per (subset, last stop) state: 24 stops is already ~3.6 GB, and from
+    // 27 on the state count no longer fits in an int array index
+    private static final int EXACT_TSPTW_STOPS_LIMIT = 24;
+
+    // Schedules with at most this many delivery stops are solved exactly (memory grows as 2^stops)
+    @Value("${tsp.tsptw.exact-max-stops:16}")
+    private int exactTsptwMaxStops;
+
+    @PostConstruct
+    void checkExactTsptwMaxStops() {
+        if (exactTsptwMaxStops > EXACT_TSPTW_STOPS_LIMIT)
+            throw new IllegalStateException("tsp.tsptw.exact-max-stops=" + exactTsptwMaxStops
+                    + " exceeds the supported maximum of " + EXACT_TSPTW_STOPS_LIMIT);
+    }
+
     @Data
     @AllArgsConstructor
     public static class TimeWindow {
@@ -33,16 +53,17 @@ public class SolverService {
         List<Integer> pathIndices = new ArrayList<>();
         pathIndices.add(0);
 
-        List<Integer> unvisited = new ArrayList<>();
-        for (int i = 1; i < numLocations; i++)
-            unvisited.add(i);
+        boolean[] visited = new boolean[numLocations];
+        visited[0] = true;
 
         int currentNode = 0;
-        while (!unvisited.isEmpty()) {
+        for (int step = 1; step < numLocations; step++) {
             int nearestNode = -1;
             double minDist = Double.MAX_VALUE;
 
-            for (Integer node : unvisited) {
+            for (int node = 1; node < numLocations; node++) {
+                if (visited[node])
+                    continue;
                 double dist = distMatrix[currentNode][node];
                 if (dist != Double.POSITIVE_INFINITY && dist < minDist) {
                     minDist = dist;
@@ -54,14 +75,53 @@ public class SolverService {
 
             currentNode = nearestNode;
             pathIndices.add(currentNode);
-            unvisited.remove(Integer.valueOf(currentNode));
+            visited[currentNode] = true;
         }
         pathIndices.add(0);
         return pathIndices;
     }
 
+    /**
+     * Prefix sums of the path's edge costs in both directions, so the cost of
+     * reversing any sub-path can be priced in O(1) on asymmetric matrices.
+     * Infinite edges (avoided segments) are counted separately so the sums stay finite.
+     */
+    private static class PathCosts {
+        private final double[] fwd;
+        private final double[] bwd;
+        private final int[] fwdInf;
+        private final int[] bwdInf;
+
+        PathCosts(List<Integer> path, double[][] distMatrix) {
+            int size = path.size();
+            fwd = new double[size];
+            bwd = new double[size];
+            fwdInf = new int[size];
+            bwdInf = new int[size];
+            for (int t = 0; t < size - 1; t++) {
+                double f = distMatrix[path.get(t)][path.get(t + 1)];
+                double b = distMatrix[path.get(t + 1)][path.get(t)];
+                fwd[t + 1] = fwd[t] + (Double.isInfinite(f) ? 0 : f);
+                bwd[t + 1] = bwd[t] + (Double.isInfinite(b) ? 0 : b);
+                fwdInf[t + 1] = fwdInf[t] + (Double.isInfinite(f) ? 1 : 0);
+                bwdInf[t + 1] = bwdInf[t] + (Double.isInfinite(b) ? 1 : 0);
+            }
+        }
+
+        // Cost of the edges between positions i..j walked forward
+        double forward(int i, int j) {
+            return fwdInf[j] > fwdInf[i] ? Double.POSITIVE_INFINITY : fwd[j] - fwd[i];
+        }
+
+        // Cost of the same edges once the sub-path i..j is reversed
+        double backward(int i, int j) {
+            return bwdInf[j] > bwdInf[i] ? Double.POSITIVE_INFINITY : bwd[j] - bwd[i];
+        }
+    }
+
     public List<Integer> apply2Opt(List<Integer> pathIndices, double[][] distMatrix) {
         List<Integer> bestPath = new ArrayList<>(pathIndices);
+        PathCosts costs = new PathCosts(bestPath, distMatrix);
         boolean improved = true;
         while (improved) {
             improved = false;
@@ -70,17 +130,16 @@ public class SolverService {
                     if (j == i + 1)
                         continue;
 
-                    // Distance check
-                    double distAC = distMatrix[bestPath.get(i - 1)][bestPath.get(i)];
-                    double distBD = distMatrix[bestPath.get(j - 1)][bestPath.get(j)];
-                    double distCurrent = distAC + distBD;
+                    // Reversing i..j-1 changes the two boundary edges and the direction of
+                    // every edge inside, which matters on one-way streets
+                    int a = bestPath.get(i - 1), b = bestPath.get(i);
+                    int c = bestPath.get(j - 1), e = bestPath.get(j);
+                    double distCurrent = distMatrix[a][b] + costs.forward(i, j - 1) + distMatrix[c][e];
+                    double distNew = distMatrix[a][c] + costs.backward(i, j - 1) + distMatrix[b][e];
 
-                    double distAD = distMatrix[bestPath.get(i - 1)][bestPath.get(j - 1)];
-                    double distBC = distMatrix[bestPath.get(i)][bestPath.get(j)];
-                    double distNew = distAD + distBC;
-
-                    if (distNew < distCurrent) {
+                    if (distNew < distCurrent - EPS) {
                         Collections.reverse(bestPath.subList(i, j));
+                        costs = new PathCosts(bestPath, distMatrix);
                         improved = true;
                     }
                 }
@@ -89,14 +148,281 @@ public class SolverService {
         return bestPath;
     }
 
+    /**
+     * Or-opt: moves segments of 1-3 stops to a better position without reversing
+     * them, so every move is priced exactly on asymmetric matrices.
+     */
+    public List<Integer> applyOrOpt(List<Integer> pathIndices, double[][] distMatrix) {
+        List<Integer> bestPath = new ArrayList<>(pathIndices);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            search:
+            for (int len = 1; len <= 3; len++) {
+                for (int i = 1; i + len < bestPath.size(); i++) {
+                    int a = bestPath.get(i - 1), s1 = bestPath.get(i);
+                    int s2 = bestPath.get(i + len - 1), b = bestPath.get(i + len);
+                    double removeGain = distMatrix[a][s1] + distMatrix[s2][b] - distMatrix[a][b];
+                    if (!(removeGain > EPS))
+                        continue;
+
+                    for (int k = 0; k < bestPath.size() - 1; k++) {
+                        if (k >= i - 1 && k < i + len)
+                            continue;
+                        int p = bestPath.get(k), q = bestPath.get(k + 1);
+                        double addCost = distMatrix[p][s1] + distMatrix[s2][q] - distMatrix[p][q];
+                        if (addCost < removeGain - EPS) {
+                            List<Integer> segment = new ArrayList<>(bestPath.subList(i, i + len));
+                            bestPath.subList(i, i + len).clear();
+                            int insertAt = k < i ? k + 1 : k + 1 - len;
+                            bestPath.addAll(insertAt, segment);
+                            improved = true;
+                            break search;
+                        }
+                    }
+                }
+            }
+        }
+        return bestPath;
+    }
+
+    /**
+     * Alternates 2-Opt (reversals priced in both directions) and Or-opt until
+     * neither finds an improving move.
+     */
+    public List<Integer> applyAsymmetricLocalSearch(List<Integer> pathIndices, double[][] distMatrix) {
+        List<Integer> path = pathIndices;
+        double cost = calculateTotalDistance(path, distMatrix);
+        while (true) {
+            path = applyOrOpt(apply2Opt(path, distMatrix), distMatrix);
+            double newCost = calculateTotalDistance(path, distMatrix);
+            if (!(newCost < cost - EPS))
+                return path;
+            cost = newCost;
+        }
+    }
+
+    // 2-Opt + Or-opt on a two-level list tour for large instances
+
+    static final int NEIGHBOR_LIST_SIZE = 10;
+
+    /**
+     * Neighbor-list 2-Opt and Or-opt (segments of 1-3 stops) with don't-look bits.
+     * Moves are applied on a {@link TwoLevelTour}, so each one costs O(sqrt n)
+     * instead of the O(n) list reversal in {@link #apply2Opt}. On asymmetric
+     * matrices moves are priced on the mean of both directions (see {@link #w}),
+     * and the input is returned unchanged unless the directed cost went down.
+     */
+    public List<Integer> apply2OptOrOpt(List<Integer> pathIndices, double[][] distMatrix) {
+        if (distMatrix.length < 8)
+            return apply2Opt(pathIndices, distMatrix);
+        return apply2OptOrOpt(pathIndices, distMatrix, buildNeighborLists(distMatrix, NEIGHBOR_LIST_SIZE));
+    }
+
+    /**
+     * Same as {@link #apply2OptOrOpt(List, double[][])} with precomputed neighbor
+     * lists, for callers that improve many tours on the same matrix.
+     */
+    List<Integer> apply2OptOrOpt(List<Integer> pathIndices, double[][] distMatrix, int[][] neighbors) {
+        int n = distMatrix.length;
+        if (n < 8)
+            return apply2Opt(pathIndices, distMatrix);
+
+        TwoLevelTour tour = new TwoLevelTour(pathIndices);
+
+        // Work queue of nodes whose don't-look bit is off
+        int[] queue = new int[n];
+        boolean[] queued = new boolean[n];
+        int head = 0, count = 0;
+        for (int v : pathIndices) {
+            if (!queued[v]) {
+                queue[(head + count++) % n] = v;
+                queued[v] = true;
+            }
+        }
+
+        int[] touched = new int[6];
+        while (count > 0) {
+            int a = queue[head];
+            head = (head + 1) % n;
+            count--;
+            queued[a] = false;
+
+            int moved = improve2Opt(tour, a, neighbors, distMatrix, touched);
+            if (moved == 0)
+                moved = improveOrOpt(tour, a, neighbors, distMatrix, touched);
+            for (int k = 0; k < moved; k++) {
+                int v = touched[k];
+                if (!queued[v]) {
+                    queue[(head + count++) % n] = v;
+                    queued[v] = true;
+                }
+            }
+        }
+        // Moves were priced on the symmetrised cost; keep the cheaper direction,
+        // and the input if neither direction is cheaper on the directed cost
+        List<Integer> res = tour.toList(0);
+        double resCost = calculateTotalDistance(res, distMatrix);
+        List<Integer> reversed = new ArrayList<>(res);
+        Collections.reverse(reversed);
+        double reversedCost = calculateTotalDistance(reversed, distMatrix);
+        if (reversedCost < resCost - EPS) {
+            res = reversed;
+            resCost = reversedCost;
+        }
+        return resCost < calculateTotalDistance(pathIndices, distMatrix) - EPS ? res : new ArrayList<>(pathIndices);
+    }
+
+    /**
+     * Edge weight for the neighbor-list moves: mean of both directions. Pricing
+     * every move on this one symmetric cost makes each move a strict descent, so
+     * the search terminates even on asymmetric road matrices.
+     */
+    private static double w(double[][] d, int i, int j) {
+        return d[i][j] == d[j][i] ? d[i][j] : 0.5 * (d[i][j] + d[j][i]);
+    }
+
+    private int improve2Opt(TwoLevelTour tour, int a, int[][] neighbors, double[][] d, int[] touched) {
+        // Successor direction: a b ... c e -> a c ... b e
+        int b = tour.next(a);
+        for (int c : neighbors[a]) {
+            if (w(d, a, b) - w(d, a, c) <= EPS)
+                break;
+            int e = tour.next(c);
+            if (c == b || e == a)
+                continue;
+            double delta = w(d, a, c) + w(d, b, e) - w(d, a, b) - w(d, c, e);
+            if (delta < -EPS) {
+                tour.flip(a, b, c, e);
+                return touchAll(touched, a, b, c, e);
+            }
+        }
+        // Predecessor direction: b a ... e c -> b e ... a c
+        b = tour.prev(a);
+        for (int c : neighbors[a]) {
+            if (w(d, b, a) - w(d, a, c) <= EPS)
+                break;
+            int e = tour.prev(c);
+            if (c == b || e == a)
+                continue;
+            double delta = w(d, a, c) + w(d, b, e) - w(d, b, a) - w(d, e, c);
+            if (delta < -EPS) {
+                tour.reverse(a, e);
+                return touchAll(touched, a, b, c, e);
+            }
+        }
+        return 0;
+    }
+
+    private int improveOrOpt(TwoLevelTour tour, int s1, int[][] neighbors, double[][] d, int[] touched) {
+        int n = tour.size();
+        int s2 = s1;
+        for (int len = 1; len <= 3 && len + 3 <= n; len++) {
+            if (len > 1)
+                s2 = tour.next(s2);
+            int a = tour.prev(s1), b = tour.next(s2);
+            double removeGain = w(d, a, s1) + w(d, s2, b) - w(d, a, b);
+            if (removeGain <= EPS)
+                continue;
+
+            for (int p : neighbors[s1]) {
+                if (w(d, p, s1) >= removeGain)
+                    break;
+                if (tour.between(s1, p, s2))
+                    continue;
+                // p s1..s2 q
+                int q = tour.next(p);
+                if (p != a && w(d, p, s1) + w(d, s2, q) - w(d, p, q) < removeGain - EPS) {
+                    moveSegment(tour, s1, s2, p, false);
+                    return touchAll(touched, a, b, s1, s2, p, q);
+                }
+                // o s2..s1 p
+                int o = tour.prev(p);
+                if (o != s2 && w(d, o, s2) + w(d, s1, p) - w(d, o, p) < removeGain - EPS) {
+                    moveSegment(tour, s1, s2, o, true);
+                    return touchAll(touched, a, b, s1, s2, o, p);
+                }
+            }
+        }
+        return 0;
+    }
+
+    // Moves s1..s2 between p and next(p) with three reversals: a S b..p q -> a b..p S q
+    private void moveSegment(TwoLevelTour tour, int s1, int s2, int p, boolean reversed) {
+        int b = tour.next(s2);
+        tour.reverse(s1, p);
+        tour.reverse(p, b);
+        if (!reversed)
+            tour.reverse(s2, s1);
+    }
+
+    private int touchAll(int[] touched, int... nodes) {
+        System.arraycopy(nodes, 0, touched, 0, nodes.length);
+        return nodes.length;
+    }
+
+    /**
+     * k closest stops for every stop (by matrix distance), nearest first.
+     */
+    int[][] buildNeighborLists(double[][] distMatrix, int k) {
+        int n = distMatrix.length;
+        k = Math.min(k, n - 1);
+        int[][] res = new int[n][];
+        int[] best = new int[k];
+        double[] bestDist = new double[k];
+        for (int i = 0; i < n; i++) {
+            int count = 0;
+            for (int j = 0; j < n; j++) {
+                if (j == i)
+                    continue;
+                double dist = distMatrix[i][j];
+                if (count == k && dist >= bestDist[k - 1])
+                    continue;
+                int slot = count < k ? count++ : k - 1;
+                while (slot > 0 && bestDist[slot - 1] > dist) {
+                    best[slot] = best[slot - 1];
+                    bestDist[slot] = bestDist[slot - 1];
+                    slot--;
+                }
+                best[slot] = j;
+                bestDist[slot] = dist;
+            }
+            res[i] = Arrays.copyOf(best, count);
+        }
+        return res;
+    }
+
     public List<Integer> run3Opt(double[][] distMatrix) {
+        return run3Opt(distMatrix, null);
+    }
+
+    public List<Integer> run3Opt(double[][] distMatrix, SolverTrace trace) {
+        return run3Opt(distMatrix, trace, GapTarget.NONE);
+    }
+
+    /**
+     * @param stop ends the search early once the tour is within the gap target of the lower bound
+     */
+    public List<Integer> run3Opt(double[][] distMatrix, SolverTrace trace, GapTarget stop) {
         List<Integer> initialPath = runNearestNeighbor(distMatrix);
-        if (initialPath.size() < 6)
+        if (initialPath.size() < 6) {
+            if (trace != null)
+                trace.finish("too_small");
             return initialPath;
+        }
 
         List<Integer> bestPath = new ArrayList<>(initialPath);
+        double bestCost = calculateTotalDistance(bestPath, distMatrix);
+        long iteration = 0;
+        if (trace != null)
+            trace.record(iteration, bestCost, bestCost, Double.NaN);
         boolean improved = true;
         while (improved) {
+            if (stop.reached(bestCost)) {
+                if (trace != null)
+                    trace.finish("gap_reached");
+                return bestPath;
+            }
             improved = false;
             for (int i = 1; i < bestPath.size() - 4; i++) {
                 for (int j = i + 2; j < bestPath.size() - 2; j++) {
@@ -111,22 +437,27 @@ public class SolverService {
 
                         double d0 = distMatrix[A][B] + distMatrix[C][D] + distMatrix[E][F];
                         double d1 = distMatrix[A][D] + distMatrix[E][B] + distMatrix[C][F];
+                        iteration++;
 
-                        if (d1 < d0) {
-
+                        if (d1 < d0 - EPS) {
+                            // Segment exchange A [B..C] [D..E] F -> A [D..E] [B..C] F; no segment is
+                            // reversed, so d1 is the exact new cost even on asymmetric matrices
                             List<Integer> newPath = new ArrayList<>();
                             newPath.addAll(bestPath.subList(0, i));
                             newPath.addAll(bestPath.subList(j, k));
-
-                            List<Integer> midReversed = new ArrayList<>(bestPath.subList(i, j));
-                            Collections.reverse(midReversed);
-                            newPath.addAll(midReversed);
-
+                            newPath.addAll(bestPath.subList(i, j));
                             newPath.addAll(bestPath.subList(k, bestPath.size()));
 
                             bestPath = newPath;
                             improved = true;
+                            bestCost += d1 - d0;
+                            if (trace != null) {
+                                trace.accepted();
+                                trace.record(iteration, bestCost, bestCost, Double.NaN);
+                            }
                             break;
+                        } else if (trace != null) {
+                            trace.rejected();
                         }
                     }
                     if (improved)
@@ -136,13 +467,29 @@ public class SolverService {
                     break;
             }
         }
+        if (trace != null)
+            trace.finish("local_optimum");
         return bestPath;
     }
 
     public List<Integer> runSaSolver(double[][] distMatrix) {
+        return runSaSolver(distMatrix, null);
+    }
+
+    public List<Integer> runSaSolver(double[][] distMatrix, SolverTrace trace) {
+        return runSaSolver(distMatrix, trace, GapTarget.NONE);
+    }
+
+    /**
+     * @param stop ends the search early once the best tour is within the gap target of the lower bound
+     */
+    public List<Integer> runSaSolver(double[][] distMatrix, SolverTrace trace, GapTarget stop) {
         int numLocations = distMatrix.length;
-        if (numLocations < 3)
+        if (numLocations < 3) {
+            if (trace != null)
+                trace.finish("too_small");
             return runNearestNeighbor(distMatrix);
+        }
 
         List<Integer> currentSolution = new ArrayList<>();
         for (int i = 1; i < numLocations; i++)
@@ -161,6 +508,7 @@ public class SolverService {
         double stoppingTemp = 1;
         double alpha = 0.995;
         Random rand = new Random();
+        long iteration = 0;
 
         while (temp > stoppingTemp) {
             int bound = currentSolution.size() - 2;
@@ -185,10 +533,24 @@ public class SolverService {
                 if (currentCost < bestCost) {
                     bestSolution = new ArrayList<>(currentSolution);
                     bestCost = currentCost;
+                    if (stop.reached(bestCost)) {
+                        if (trace != null)
+                            trace.finish("gap_reached");
+                        return bestSolution;
+                    }
                 }
+                if (trace != null)
+                    trace.accepted();
+            } else if (trace != null) {
+                trace.rejected();
             }
+            if (trace != null)
+                trace.record(iteration, currentCost, bestCost, temp);
+            iteration++;
             temp *= alpha;
         }
+        if (trace != null)
+            trace.finish("cooled");
         return bestSolution;
     }
 
@@ -257,6 +619,15 @@ public class SolverService {
 
     public TSPTWResult runSaSolverForTsptw(double[][] distMatrix, double[][] durationMatrix,
             List<TimeWindow> timeWindows, int startTimeSec) {
+        return runSaSolverForTsptw(distMatrix, durationMatrix, timeWindows, startTimeSec, null);
+    }
+
+    /**
+     * @param initialTour tour to start annealing from (e.g. a cached solution for the
+     *                    same stops); null starts from a random shuffle
+     */
+    public TSPTWResult runSaSolverForTsptw(double[][] distMatrix, double[][] durationMatrix,
+            List<TimeWindow> timeWindows, int startTimeSec, List<Integer> initialTour) {
         int numLocations = distMatrix.length;
         Random rand = new Random();
 
@@ -268,13 +639,17 @@ public class SolverService {
         }
 
         List<Integer> currentSolution = new ArrayList<>();
-        currentSolution.add(0);
-        List<Integer> middle = new ArrayList<>();
-        for (int i = 1; i < numLocations; i++)
-            middle.add(i);
-        Collections.shuffle(middle);
-        currentSolution.addAll(middle);
-        currentSolution.add(0);
+        if (initialTour != null && initialTour.size() == numLocations + 1) {
+            currentSolution.addAll(initialTour);
+        } else {
+            currentSolution.add(0);
+            List<Integer> middle = new ArrayList<>();
+            for (int i = 1; i < numLocations; i++)
+                middle.add(i);
+            Collections.shuffle(middle);
+            currentSolution.addAll(middle);
+            currentSolution.add(0);
+        }
 
         TSPTWResult currentRes = calculateTsptwCost(currentSolution, durationMatrix, timeWindows, startTimeSec);
         double currentCost = currentRes.cost;
@@ -321,6 +696,129 @@ public class SolverService {
         return new TSPTWResult(bestSolution, calculateTotalDistance(bestSolution, distMatrix), bestCost, bestSchedule);
     }
 
+    /**
+     * Exact DP for instances up to tsp.tsptw.exact-max-stops delivery stops,
+     * simulated annealing above that.
+     */
+    public TSPTWResult solveTsptw(double[][] distMatrix, double[][] durationMatrix, List<TimeWindow> timeWindows,
+            int startTimeSec, List<Integer> initialTour) {
+        if (isExactTsptw(distMatrix.length))
+            return runExactTsptw(distMatrix, durationMatrix, timeWindows, startTimeSec);
+        return runSaSolverForTsptw(distMatrix, durationMatrix, timeWindows, startTimeSec, initialTour);
+    }
+
+    public boolean isExactTsptw(int numLocations) {
+        return numLocations - 1 <= exactTsptwMaxStops;
+    }
+
+    /**
+     * Exact TSPTW by dynamic programming over (visited stops, last stop) on the
+     * duration matrix, minimising the time back at the warehouse like
+     * {@link #calculateTsptwCost}.
+     * <p>
+     * Waiting is allowed, so for a given (mask, last) an earlier departure can
+     * never lead to a later finish: each state keeps only its earliest departure
+     * (dominance), and extensions that arrive after a window closes are dropped.
+     * A state is also dropped when some unvisited stop can no longer be reached
+     * before its window closes even along the fastest path (Floyd-Warshall
+     * durations). Throws if no order satisfies the windows.
+     */
+    public TSPTWResult runExactTsptw(double[][] distMatrix, double[][] durationMatrix, List<TimeWindow> timeWindows,
+            int startTimeSec) {
+        int m = durationMatrix.length - 1;
+        double[] earliest = new double[m];
+        double[] latest = new double[m];
+        for (int j = 0; j < m; j++) {
+            earliest[j] = timeWindows.get(j).getEarliest();
+            latest[j] = timeWindows.get(j).getLatest();
+        }
+        double[][] fastest = shortestDurations(durationMatrix);
+
+        int full = (1 << m) - 1;
+        double[] departure = new double[(full + 1) * m];
+        byte[] pred = new byte[(full + 1) * m];
+        Arrays.fill(departure, Double.POSITIVE_INFINITY);
+        for (int j = 0; j < m; j++) {
+            double arrival = startTimeSec + durationMatrix[0][j + 1];
+            if (arrival <= latest[j]) {
+                departure[(1 << j) * m + j] = Math.max(arrival, earliest[j]);
+                pred[(1 << j) * m + j] = -1;
+            }
+        }
+
+        // Supersets are numerically larger, so increasing mask order is a valid DP order
+        for (int mask = 1; mask < full; mask++) {
+            for (int last = 0; last < m; last++) {
+                double t = departure[mask * m + last];
+                if (t == Double.POSITIVE_INFINITY || strandsUnvisited(mask, last, t, fastest, latest))
+                    continue;
+                for (int j = 0; j < m; j++) {
+                    if ((mask & (1 << j)) != 0)
+                        continue;
+                    double arrival = t + durationMatrix[last + 1][j + 1];
+                    if (arrival > latest[j])
+                        continue;
+                    int state = (mask | (1 << j)) * m + j;
+                    double dep = Math.max(arrival, earliest[j]);
+                    if (dep < departure[state]) {
+                        departure[state] = dep;
+                        pred[state] = (byte) last;
+                    }
+                }
+            }
+        }
+
+        int bestLast = -1;
+        double bestFinish = Double.POSITIVE_INFINITY;
+        for (int last = 0; last < m; last++) {
+            double finish = departure[full * m + last] + durationMatrix[last + 1][0];
+            if (finish < bestFinish) {
+                bestFinish = finish;
+                bestLast = last;
+            }
+        }
+        if (bestLast == -1)
+            throw new RuntimeException("No order of stops satisfies the given time windows.");
+
+        LinkedList<Integer> path = new LinkedList<>();
+        path.addFirst(0);
+        for (int mask = full, last = bestLast; last != -1;) {
+            path.addFirst(last + 1);
+            int prev = pred[mask * m + last];
+            mask &= ~(1 << last);
+            last = prev;
+        }
+        path.addFirst(0);
+
+        List<Integer> tour = new ArrayList<>(path);
+        TSPTWResult res = calculateTsptwCost(tour, durationMatrix, timeWindows, startTimeSec);
+        res.distance = calculateTotalDistance(tour, distMatrix);
+        return res;
+    }
+
+    // True if some stop outside mask cannot be reached before its window closes
+    private boolean strandsUnvisited(int mask, int last, double time, double[][] fastest, double[] latest) {
+        for (int k = 0; k < latest.length; k++) {
+            if ((mask & (1 << k)) == 0 && time + fastest[last + 1][k + 1] > latest[k])
+                return true;
+        }
+        return false;
+    }
+
+    // All-pairs fastest travel times; a lower bound on any arrival since waiting only adds time
+    private double[][] shortestDurations(double[][] durationMatrix) {
+        int n = durationMatrix.length;
+        double[][] d = new double[n][];
+        for (int i = 0; i < n; i++)
+            d[i] = durationMatrix[i].clone();
+        for (int k = 0; k < n; k++)
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++)
+                    if (d[i][k] + d[k][j] < d[i][j])
+                        d[i][j] = d[i][k] + d[k][j];
+        return d;
+    }
+
     // A* Search Implementation
 
     @Data
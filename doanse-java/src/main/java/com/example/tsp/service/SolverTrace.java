@@ -0,0 +1,211 @@
+package com.example.tsp.service;
+
+import com.example.tsp.model.ConvergenceTrace;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.Arrays;
+
+/**
+ * Per-run convergence telemetry for the iterative solvers.
+ * <p>
+ * All samples are written into preallocated primitive arrays used as a ring
+ * buffer, so recording from a hot loop never allocates. Solvers take a
+ * nullable trace and skip recording entirely when it is null.
+ */
+public class SolverTrace {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final String algorithm;
+    private final int capacity;
+    private final long startNanos;
+
+    private final long[] iterations;
+    private final long[] elapsedNanos;
+    private final double[] currentCosts;
+    private final double[] bestCosts;
+    private final double[] temperatures;
+    private final boolean[] improvement;
+
+    private int head;
+    private long recorded;
+
+    private long iterationCount;
+    private long accepted;
+    private long rejected;
+    private long improvements;
+    private long lastImprovementIteration = -1;
+    private long lastImprovementNanos = -1;
+    private double bestCost = Double.POSITIVE_INFINITY;
+    private String stopReason;
+
+    public SolverTrace(String algorithm) {
+        this(algorithm, DEFAULT_CAPACITY);
+    }
+
+    public SolverTrace(String algorithm, int capacity) {
+        this.algorithm = algorithm;
+        this.capacity = capacity;
+        this.startNanos = System.nanoTime();
+        this.iterations = new long[capacity];
+        this.elapsedNanos = new long[capacity];
+        this.currentCosts = new double[capacity];
+        this.bestCosts = new double[capacity];
+        this.temperatures = new double[capacity];
+        this.improvement = new boolean[capacity];
+    }
+
+    public void accepted() {
+        accepted++;
+    }
+
+    public void rejected() {
+        rejected++;
+    }
+
+    /**
+     * Records one sample. Pass Double.NaN as temperature for non-annealing solvers.
+     */
+    public void record(long iteration, double currentCost, double best, double temperature) {
+        long now = System.nanoTime() - startNanos;
+        boolean improved = best < bestCost;
+        if (improved) {
+            bestCost = best;
+            improvements++;
+            lastImprovementIteration = iteration;
+            lastImprovementNanos = now;
+        }
+        iterationCount = iteration + 1;
+
+        int slot = head;
+        iterations[slot] = iteration;
+        elapsedNanos[slot] = now;
+        currentCosts[slot] = currentCost;
+        bestCosts[slot] = best;
+        temperatures[slot] = temperature;
+        improvement[slot] = improved;
+        head = (slot + 1 == capacity) ? 0 : slot + 1;
+        recorded++;
+    }
+
+    /**
+     * Marks the run as finished and emits the buffered samples as JFR events
+     * (they are dropped cheaply by JFR when no recording is active).
+     */
+    public void finish(String reason) {
+        this.stopReason = reason;
+        emitJfrEvents();
+    }
+
+    public ConvergenceTrace snapshot() {
+        int size = (int) Math.min(recorded, capacity);
+        int first = recorded > capacity ? head : 0;
+
+        long[] iters = new long[size];
+        double[] elapsedMs = new double[size];
+        double[] current = new double[size];
+        double[] best = new double[size];
+        double[] temps = new double[size];
+        for (int n = 0; n < size; n++) {
+            int slot = (first + n) % capacity;
+            iters[n] = iterations[slot];
+            elapsedMs[n] = elapsedNanos[slot] / 1_000_000.0;
+            current[n] = currentCosts[slot];
+            best[n] = bestCosts[slot];
+            temps[n] = temperatures[slot];
+        }
+
+        return ConvergenceTrace.builder()
+                .algorithm(algorithm)
+                .iterations(iterationCount)
+                .accepted(accepted)
+                .rejected(rejected)
+                .improvements(improvements)
+                .lastImprovementIteration(lastImprovementIteration)
+                .lastImprovementMs(lastImprovementNanos < 0 ? -1 : lastImprovementNanos / 1_000_000.0)
+                .bestCost(bestCost)
+                .stopReason(stopReason)
+                .sampleIterations(iters)
+                .sampleElapsedMs(elapsedMs)
+                .sampleCurrentCost(current)
+                .sampleBestCost(best)
+                .sampleTemperature(Arrays.stream(temps).allMatch(Double::isNaN) ? null : temps)
+                .build();
+    }
+
+    private void emitJfrEvents() {
+        SolverRunEvent runEvent = new SolverRunEvent();
+        if (!runEvent.shouldCommit())
+            return;
+
+        int size = (int) Math.min(recorded, capacity);
+        int first = recorded > capacity ? head : 0;
+        for (int n = 0; n < size; n++) {
+            int slot = (first + n) % capacity;
+            SolverSampleEvent sample = new SolverSampleEvent();
+            sample.algorithm = algorithm;
+            sample.iteration = iterations[slot];
+            sample.elapsedNanos = elapsedNanos[slot];
+            sample.currentCost = currentCosts[slot];
+            sample.bestCost = bestCosts[slot];
+            sample.temperature = temperatures[slot];
+            sample.improvement = improvement[slot];
+            sample.commit();
+        }
+
+        runEvent.algorithm = algorithm;
+        runEvent.iterations = iterationCount;
+        runEvent.accepted = accepted;
+        runEvent.rejected = rejected;
+        runEvent.improvements = improvements;
+        runEvent.bestCost = bestCost;
+        runEvent.stopReason = stopReason;
+        runEvent.commit();
+    }
+
+    @Name("com.example.tsp.SolverSample")
+    @Label("Solver Sample")
+    @Category({ "TSP", "Solver" })
+    @Description("One convergence sample of a solver run")
+    static class SolverSampleEvent extends Event {
+        @Label("Algorithm")
+        String algorithm;
+        @Label("Iteration")
+        long iteration;
+        @Label("Elapsed (ns)")
+        long elapsedNanos;
+        @Label("Current Cost")
+        double currentCost;
+        @Label("Best Cost")
+        double bestCost;
+        @Label("Temperature")
+        double temperature;
+        @Label("Improvement")
+        boolean improvement;
+    }
+
+    @Name("com.example.tsp.SolverRun")
+    @Label("Solver Run")
+    @Category({ "TSP", "Solver" })
+    @Description("Summary of a traced solver run")
+    static class SolverRunEvent extends Event {
+        @Label("Algorithm")
+        String algorithm;
+        @Label("Iterations")
+        long iterations;
+        @Label("Accepted Moves")
+        long accepted;
+        @Label("Rejected Moves")
+        long rejected;
+        @Label("Improvements")
+        long improvements;
+        @Label("Best Cost")
+        double bestCost;
+        @Label("Stop Reason")
+        String stopReason;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.tsp.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Runs every solver on generated instances at startup so the JIT compiles the
+ * hot loops before real requests arrive. Spring Boot reports readiness
+ * (/actuator/health/readiness) only after all ApplicationRunners have
+ * finished, so a new node does not get traffic until the warm-up is done.
+ * <p>
+ * Rounds over a few instance sizes, alternating symmetric and asymmetric
+ * matrices, repeat until tsp.warmup.duration-ms is used up; 0 disables it.
+ * The deadline is checked before every solver call, so the warm-up overruns it
+ * by at most one call. Solver metrics are not touched.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class SolverWarmup implements ApplicationRunner {
+
+    private static final int[] SIZES = { 10, 50, 200 };
+    private static final int ASTAR_MAX_SIZE = 10;
+    // 3-Opt is O(n^3) per pass; at 200 stops one call alone can take seconds
+    private static final int THREE_OPT_MAX_SIZE = 50;
+    private static final int SCHEDULE_MAX_SIZE = 50;
+    private static final int BOUND_MAX_SIZE = 50;
+    private static final long ANYTIME_BUDGET_MS = 100;
+    private static final double SPEED_MPS = 30 / 3.6;
+    private static final int OPEN_WINDOW_SEC = 7 * 24 * 3600;
+
+    private final SolverService solverService;
+    private final ConstructionService constructionService;
+    private final DecompositionSolver decompositionSolver;
+    private final GeneticSolver geneticSolver;
+    private final AcoSolver acoSolver;
+    private final LowerBoundService lowerBoundService;
+
+    @Value("${tsp.warmup.duration-ms:5000}")
+    private long durationMs;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (durationMs <= 0)
+            return;
+        long start = System.currentTimeMillis();
+        long deadline = start + durationMs;
+        SplittableRandom rand = new SplittableRandom(7);
+        int rounds = 0;
+        try {
+            do {
+                for (int n : SIZES) {
+                    if (System.currentTimeMillis() >= deadline)
+                        break;
+                    warmUp(StrategyBenchmark.instance(n, rounds % 2 == 0 ? 0.0 : 0.3, rand.split()), deadline);
+                }
+                rounds++;
+            } while (System.currentTimeMillis() < deadline);
+        } catch (RuntimeException e) {
+            // A solver bug must not keep the node from starting
+            log.warn("Solver warm-up stopped early: {}", e.getMessage());
+        }
+        log.info("Solver warm-up: {} rounds in {} ms", rounds, System.currentTimeMillis() - start);
+    }
+
+    private void warmUp(StrategyBenchmark.Instance inst, long deadline) {
+        double[][] d = inst.matrix;
+        int n = d.length;
+        List<Integer> nn = solverService.runNearestNeighbor(d);
+
+        List<Runnable> calls = new ArrayList<>();
+        calls.add(() -> solverService.apply2Opt(nn, d));
+        calls.add(() -> solverService.applyOrOpt(nn, d));
+        calls.add(() -> solverService.apply2OptOrOpt(nn, d));
+        calls.add(() -> solverService.applyAsymmetricLocalSearch(nn, d));
+        if (n <= THREE_OPT_MAX_SIZE)
+            calls.add(() -> solverService.run3Opt(d));
+        calls.add(() -> solverService.runSaSolver(d));
+        if (n <= ASTAR_MAX_SIZE)
+            calls.add(() -> solverService.runAStarSolver(d));
+
+        calls.add(() -> constructionService.nearestNeighbor(inst.locations, d));
+        calls.add(() -> constructionService.hilbertOrder(inst.locations, d));
+        calls.add(() -> constructionService.greedyEdge(inst.locations, d));
+        calls.add(() -> decompositionSolver.solve(inst.locations, d));
+        calls.add(() -> geneticSolver.solve(d, ANYTIME_BUDGET_MS));
+        calls.add(() -> acoSolver.solve(d, ANYTIME_BUDGET_MS));
+        if (n <= BOUND_MAX_SIZE)
+            calls.add(() -> lowerBoundService.compute(d));
+
+        if (n <= SCHEDULE_MAX_SIZE) {
+            // Windows wide enough that every order is feasible; exact DP or SA depending on size
+            double[][] dur = new double[n][n];
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++)
+                    dur[i][j] = d[i][j] / SPEED_MPS;
+            List<SolverService.TimeWindow> windows = new ArrayList<>();
+            for (int i = 1; i < n; i++)
+                windows.add(new SolverService.TimeWindow(0, OPEN_WINDOW_SEC));
+            calls.add(() -> solverService.solveTsptw(d, dur, windows, 8 * 3600, null));
+        }
+
+        for (Runnable call : calls) {
+            if (System.currentTimeMillis() >= deadline)
+                return;
+            call.run();
+        }
+    }
+}
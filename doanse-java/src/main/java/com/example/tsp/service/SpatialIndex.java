@@ -0,0 +1,212 @@
+package com.example.tsp.service;
+
+import com.example.tsp.model.AddressData;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Static 2-d tree over the stop coordinates with support for removing points,
+ * used by the construction heuristics to find nearby unvisited stops in
+ * O(log n) instead of scanning a whole matrix row.
+ * <p>
+ * Coordinates are projected to metres (equirectangular around the mean
+ * latitude), which is accurate enough at city scale. The tree is stored
+ * implicitly: the node for range [lo, hi) is the element at its midpoint.
+ */
+public class SpatialIndex {
+
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] ids;
+    private final int[] pos;
+    private final int[] aliveCount;
+    private final boolean[] alive;
+
+    public SpatialIndex(List<AddressData> locations) {
+        int n = locations.size();
+        xs = new double[n];
+        ys = new double[n];
+        double meanLat = 0;
+        for (AddressData a : locations)
+            meanLat += a.getLat();
+        meanLat = n > 0 ? meanLat / n : 0;
+        double kx = 111_320.0 * Math.cos(Math.toRadians(meanLat));
+        for (int i = 0; i < n; i++) {
+            xs[i] = locations.get(i).getLon() * kx;
+            ys[i] = locations.get(i).getLat() * 110_540.0;
+        }
+
+        ids = new int[n];
+        for (int i = 0; i < n; i++)
+            ids[i] = i;
+        build(0, n, 0);
+
+        pos = new int[n];
+        for (int p = 0; p < n; p++)
+            pos[ids[p]] = p;
+        aliveCount = new int[n];
+        initCounts(0, n);
+        alive = new boolean[n];
+        Arrays.fill(alive, true);
+    }
+
+    public int size() {
+        return xs.length;
+    }
+
+    public double x(int id) {
+        return xs[id];
+    }
+
+    public double y(int id) {
+        return ys[id];
+    }
+
+    public boolean isAlive(int id) {
+        return alive[id];
+    }
+
+    public void remove(int id) {
+        if (!alive[id])
+            return;
+        alive[id] = false;
+        int lo = 0, hi = xs.length, target = pos[id];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            aliveCount[mid]--;
+            if (target == mid)
+                return;
+            if (target < mid)
+                hi = mid;
+            else
+                lo = mid + 1;
+        }
+    }
+
+    /**
+     * Returns up to k alive points closest to point {@code id} (excluding itself),
+     * nearest first.
+     */
+    public int[] nearest(int id, int k) {
+        Query q = new Query(xs[id], ys[id], k, id);
+        search(0, xs.length, 0, q);
+        return q.sorted();
+    }
+
+    /**
+     * Returns the alive point closest to {@code id} (excluding itself), or -1 if none remain.
+     */
+    public int nearestOne(int id) {
+        int[] res = nearest(id, 1);
+        return res.length == 0 ? -1 : res[0];
+    }
+
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1)
+            return;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, (depth & 1) == 0 ? xs : ys);
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    // Quickselect on ids[lo..hi] so that ids[k] holds the k-th smallest key
+    private void select(int lo, int hi, int k, double[] key) {
+        while (hi > lo) {
+            double pivot = key[ids[(lo + hi) >>> 1]];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (key[ids[i]] < pivot)
+                    i++;
+                while (key[ids[j]] > pivot)
+                    j--;
+                if (i <= j) {
+                    int t = ids[i];
+                    ids[i] = ids[j];
+                    ids[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j)
+                hi = j;
+            else if (k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    private void initCounts(int lo, int hi) {
+        if (lo >= hi)
+            return;
+        int mid = (lo + hi) >>> 1;
+        aliveCount[mid] = hi - lo;
+        initCounts(lo, mid);
+        initCounts(mid + 1, hi);
+    }
+
+    private void search(int lo, int hi, int depth, Query q) {
+        if (lo >= hi)
+            return;
+        int mid = (lo + hi) >>> 1;
+        if (aliveCount[mid] == 0)
+            return;
+
+        int id = ids[mid];
+        if (alive[id] && id != q.exclude) {
+            double dx = xs[id] - q.x, dy = ys[id] - q.y;
+            q.offer(id, dx * dx + dy * dy);
+        }
+
+        double diff = (depth & 1) == 0 ? q.x - xs[id] : q.y - ys[id];
+        if (diff < 0) {
+            search(lo, mid, depth + 1, q);
+            if (diff * diff < q.worst())
+                search(mid + 1, hi, depth + 1, q);
+        } else {
+            search(mid + 1, hi, depth + 1, q);
+            if (diff * diff < q.worst())
+                search(lo, mid, depth + 1, q);
+        }
+    }
+
+    // Bounded result set kept sorted by insertion (k is small)
+    private static class Query {
+        final double x, y;
+        final int exclude;
+        final int[] best;
+        final double[] bestDist;
+        int count;
+
+        Query(double x, double y, int k, int exclude) {
+            this.x = x;
+            this.y = y;
+            this.exclude = exclude;
+            this.best = new int[k];
+            this.bestDist = new double[k];
+        }
+
+        double worst() {
+            return count < best.length ? Double.POSITIVE_INFINITY : bestDist[count - 1];
+        }
+
+        void offer(int id, double d) {
+            if (count == best.length && d >= bestDist[count - 1])
+                return;
+            int i = count < best.length ? count++ : count - 1;
+            while (i > 0 && bestDist[i - 1] > d) {
+                best[i] = best[i - 1];
+                bestDist[i] = bestDist[i - 1];
+                i--;
+            }
+            best[i] = id;
+            bestDist[i] = d;
+        }
+
+        int[] sorted() {
+            return Arrays.copyOf(best, count);
+        }
+    }
+}
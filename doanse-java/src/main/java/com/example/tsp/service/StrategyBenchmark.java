@@ -0,0 +1,180 @@
+package com.example.tsp.service;
+
+import com.example.tsp.model.AddressData;
+import com.example.tsp.model.SolverStrategy;
+import com.example.tsp.model.StrategyTable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Offline benchmark that (re)builds the auto-mode strategy table. Enabled with
+ * tsp.auto.benchmark=true; results are written to tsp.auto.table-file, which
+ * {@link AutoSolver} picks up on its next lookup.
+ * <p>
+ * For each size and asymmetry class it generates random road-like instances,
+ * runs every applicable algorithm and records the one with the lowest mean
+ * cost that finished within the deadline (near-ties go to the faster one).
+ * Time-window rows are not benchmarked and are copied from the current table.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "tsp.auto.benchmark", havingValue = "true")
+public class StrategyBenchmark implements ApplicationRunner {
+
+    private static final int[] SIZES = { 8, 12, 25, 50, 100, 200, 400, 800 };
+    private static final double[] ASYMMETRY_NOISE = { 0.0, 0.3 };
+    private static final double TIE_TOLERANCE = 0.005;
+
+    private final AutoSolver autoSolver;
+    private final SolverService solverService;
+    private final ObjectMapper objectMapper;
+    private final ForkJoinPool solverExecutor;
+
+    @Value("${tsp.auto.table-file:}")
+    private String tableFile;
+
+    @Value("${tsp.auto.benchmark.deadline-ms:2000}")
+    private long deadlineMs;
+
+    @Value("${tsp.auto.benchmark.repetitions:2}")
+    private int repetitions;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (tableFile.isBlank()) {
+            log.error("tsp.auto.benchmark needs tsp.auto.table-file to write the table to");
+            return;
+        }
+        SplittableRandom rand = new SplittableRandom(42);
+        List<SolverStrategy> rows = new ArrayList<>();
+
+        // Profile asymmetry of a symmetric and a noisy instance, split halfway
+        double asymSplit = (autoSolver.profile(instance(50, ASYMMETRY_NOISE[0], rand.split()).matrix, null)
+                .getAsymmetry()
+                + autoSolver.profile(instance(50, ASYMMETRY_NOISE[1], rand.split()).matrix, null).getAsymmetry()) / 2;
+
+        for (int a = 0; a < ASYMMETRY_NOISE.length; a++) {
+            double maxAsym = a == ASYMMETRY_NOISE.length - 1 ? 1.0 : asymSplit;
+            for (int s = 0; s < SIZES.length; s++) {
+                int maxSize = s + 1 < SIZES.length ? (SIZES[s] + SIZES[s + 1]) / 2 : SIZES[s] * 2;
+                SolverStrategy winner = benchmark(SIZES[s], ASYMMETRY_NOISE[a], rand);
+                winner.setMaxSize(maxSize);
+                winner.setMaxAsymmetry(maxAsym);
+                rows.add(winner);
+            }
+        }
+
+        List<SolverStrategy> merged = new ArrayList<>();
+        for (SolverStrategy row : rows) {
+            SolverStrategy last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && last.getMaxAsymmetry() == row.getMaxAsymmetry()
+                    && last.getAlgorithm().equals(row.getAlgorithm()) && last.getBudgetMs() == row.getBudgetMs())
+                last.setMaxSize(row.getMaxSize());
+            else
+                merged.add(row);
+        }
+        for (SolverStrategy row : autoSolver.getTable().getStrategies()) {
+            if (row.isTimeWindows())
+                merged.add(row);
+        }
+
+        int threads = solverExecutor.getParallelism();
+        StrategyTable table = new StrategyTable(
+                String.format("StrategyBenchmark: deadline %d ms, %d repetitions, %d solver thread(s)", deadlineMs,
+                        repetitions, threads),
+                Instant.now().toString(), threads, merged);
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(Path.of(tableFile).toFile(), table);
+        log.info("Wrote {} solver strategies to {}", merged.size(), tableFile);
+        autoSolver.refresh();
+    }
+
+    private SolverStrategy benchmark(int n, double noise, SplittableRandom rand) {
+        List<String> candidates = candidates(n);
+        double[] costSum = new double[candidates.size()];
+        double[] timeSum = new double[candidates.size()];
+        for (int rep = 0; rep < repetitions; rep++) {
+            Instance inst = instance(n, noise, rand.split());
+            for (int c = 0; c < candidates.size(); c++) {
+                SolverStrategy strategy = new SolverStrategy(false, n, 1.0, 0, candidates.get(c),
+                        budgetFor(candidates.get(c)));
+                long start = System.nanoTime();
+                List<Integer> tour = autoSolver.run(strategy, inst.locations, inst.matrix);
+                double ms = (System.nanoTime() - start) / 1e6;
+                double cost = solverService.calculateTotalDistance(tour, inst.matrix);
+                costSum[c] += ms <= deadlineMs ? cost : Double.POSITIVE_INFINITY;
+                timeSum[c] += ms;
+            }
+        }
+
+        int best = 0;
+        for (int c = 1; c < candidates.size(); c++) {
+            boolean cheaper = costSum[c] < costSum[best] * (1 - TIE_TOLERANCE);
+            boolean tieButFaster = costSum[c] <= costSum[best] * (1 + TIE_TOLERANCE) && timeSum[c] < timeSum[best];
+            if (cheaper || tieButFaster)
+                best = c;
+        }
+        log.info("n={} noise={}: {} (mean {} ms)", n, noise, candidates.get(best),
+                Math.round(timeSum[best] / repetitions));
+        return new SolverStrategy(false, n, 1.0, 0, candidates.get(best), budgetFor(candidates.get(best)));
+    }
+
+    private List<String> candidates(int n) {
+        List<String> res = new ArrayList<>(List.of("nn_2opt", "greedy_2opt_oropt", "sa", "genetic", "aco"));
+        if (n <= 12)
+            res.add("astar");
+        if (n <= 200)
+            res.add("nn_3opt");
+        if (n >= 100)
+            res.add("decomposition");
+        // The O(n log n) constructions only pay off once the O(n^2) ones get slow
+        if (n >= 200) {
+            res.add("indexed_nn_2opt_oropt");
+            res.add("hilbert_2opt_oropt");
+        }
+        return res;
+    }
+
+    // Anytime solvers get most of the deadline, leaving room for the request's own overhead
+    private long budgetFor(String algorithm) {
+        return "genetic".equals(algorithm) || "aco".equals(algorithm) ? deadlineMs * 3 / 4 : 0;
+    }
+
+    static class Instance {
+        List<AddressData> locations;
+        double[][] matrix;
+    }
+
+    // Random stops around a city centre; road distance = 1.3 x straight line, plus per-direction noise
+    static Instance instance(int n, double noise, SplittableRandom rand) {
+        Instance inst = new Instance();
+        inst.locations = new ArrayList<>();
+        for (int i = 0; i < n; i++)
+            inst.locations.add(new AddressData("p" + i, 10.7 + rand.nextDouble() * 0.2,
+                    106.6 + rand.nextDouble() * 0.2, null));
+        inst.matrix = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i == j)
+                    continue;
+                AddressData a = inst.locations.get(i), b = inst.locations.get(j);
+                double dy = (a.getLat() - b.getLat()) * 111_000;
+                double dx = (a.getLon() - b.getLon()) * 111_000 * Math.cos(Math.toRadians(a.getLat()));
+                inst.matrix[i][j] = 1.3 * Math.hypot(dx, dy) * (1 + noise * rand.nextDouble());
+            }
+        }
+        return inst;
+    }
+}
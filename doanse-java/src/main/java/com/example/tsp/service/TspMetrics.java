@@ -0,0 +1,113 @@
+package com.example.tsp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Central place for the application's Micrometer meters so metric names and
+ * tags stay consistent between the controller and the services.
+ * Everything is published under the "tsp." prefix (see application.properties).
+ */
+@Component
+@RequiredArgsConstructor
+public class TspMetrics {
+
+    // Request modes the endpoints understand; anything else is tagged "other"
+    private static final Set<String> MODES = Set.of("distance", "schedule", "astar", "genetic", "aco", "auto",
+            "batch");
+
+    private final MeterRegistry registry;
+
+    public Timer.Sample startTimer() {
+        return Timer.start(registry);
+    }
+
+    // Geocoding: one timer per Nominatim query attempt and variant (raw, ", Vietnam" suffix, comma heuristic...),
+    // plus a retry counter
+    public void recordGeocodeQuery(Timer.Sample sample, String variant, String outcome) {
+        sample.stop(Timer.builder("tsp.geocode.query")
+                .description("Latency of a single Nominatim query")
+                .tag("variant", variant)
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    public void countGeocodeRetry() {
+        Counter.builder("tsp.geocode.retries")
+                .description("Nominatim queries that had to be retried")
+                .register(registry)
+                .increment();
+    }
+
+    // Routing: one timer per OSRM table attempt, plus a retry counter
+    public void recordRoutingAttempt(Timer.Sample sample, int attempt, String outcome) {
+        sample.stop(Timer.builder("tsp.routing.attempt")
+                .description("Latency of a single OSRM table request")
+                .tag("attempt", String.valueOf(attempt))
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    public void countRoutingRetry() {
+        Counter.builder("tsp.routing.retries")
+                .description("OSRM table requests that had to be retried")
+                .register(registry)
+                .increment();
+    }
+
+    // Outbound HTTP: 0 = closed, 1 = open, 2 = half-open
+    public void registerCircuitBreaker(CircuitBreaker breaker) {
+        Gauge.builder("tsp.http.circuit.state", breaker, b -> b.getState().ordinal())
+                .description("Circuit breaker state per upstream service")
+                .tag("upstream", breaker.getName())
+                .register(registry);
+    }
+
+    // Solvers: tagged by algorithm and instance size bucket
+    public <T> T timeSolver(String algorithm, int size, Supplier<T> run) {
+        return Timer.builder("tsp.solver.run")
+                .description("Wall time of a single solver run")
+                .tag("algorithm", algorithm)
+                .tag("size", sizeBucket(size))
+                .register(registry)
+                .record(run);
+    }
+
+    // Solution cache: hit, near_hit (warm start) or miss
+    public void countCacheLookup(String outcome) {
+        Counter.builder("tsp.cache.lookups")
+                .description("Solution cache lookups by outcome")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    // End-to-end request; mode comes from the client, so it is mapped onto a fixed set of tag values
+    public void recordRequest(Timer.Sample sample, String endpoint, String mode, String outcome) {
+        sample.stop(Timer.builder("tsp.request")
+                .description("End-to-end latency of a solve request")
+                .tag("endpoint", endpoint)
+                .tag("mode", MODES.contains(mode) ? mode : "other")
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    public static String sizeBucket(int n) {
+        if (n <= 12)
+            return "xs";
+        if (n <= 50)
+            return "s";
+        if (n <= 200)
+            return "m";
+        if (n <= 2000)
+            return "l";
+        return "xl";
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.tsp.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Two-level doubly-linked list tour for k-opt on large instances.
+ * <p>
+ * The tour is cut into segments of about sqrt(n) nodes. Each segment is a
+ * contiguous range of a backing array plus an orientation bit, and the
+ * segments themselves form a doubly-linked cycle. Reversing a path splits
+ * at most two segments, then flips the orientation bits and relinks the
+ * segments in between, so it costs O(sqrt n) instead of O(n). When a path
+ * is longer than half the tour the complement is reversed instead and a
+ * global orientation bit is toggled, which yields the same directed tour.
+ * <p>
+ * next/prev/between are O(1). Segments are rebuilt once splits have doubled
+ * their count, which keeps the amortised cost of a move at O(sqrt n).
+ */
+public class TwoLevelTour {
+
+    private final int n;
+    private final int groupSize;
+    private final int maxSegments;
+
+    // Node level
+    private final int[] order;
+    private final int[] pos;
+    private final int[] parent;
+
+    // Segment level
+    private final int[] segLo;
+    private final int[] segHi;
+    private final boolean[] segRev;
+    private final int[] segNext;
+    private final int[] segPrev;
+    private final int[] segRank;
+    private int segCount;
+
+    private boolean flipped;
+
+    /**
+     * @param tour cyclic visiting order; a closing repeat of the first node is ignored
+     */
+    public TwoLevelTour(List<Integer> tour) {
+        int size = tour.size();
+        if (size > 1 && tour.get(0).equals(tour.get(size - 1)))
+            size--;
+        this.n = size;
+        this.groupSize = Math.max(8, (int) Math.sqrt(n));
+        this.maxSegments = 2 * ((n + groupSize - 1) / groupSize) + 4;
+
+        order = new int[n];
+        pos = new int[n];
+        parent = new int[n];
+        segLo = new int[maxSegments + 2];
+        segHi = new int[maxSegments + 2];
+        segRev = new boolean[maxSegments + 2];
+        segNext = new int[maxSegments + 2];
+        segPrev = new int[maxSegments + 2];
+        segRank = new int[maxSegments + 2];
+
+        int[] initial = new int[n];
+        for (int i = 0; i < n; i++)
+            initial[i] = tour.get(i);
+        rebuild(initial);
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public int next(int v) {
+        return flipped ? rawPrev(v) : rawNext(v);
+    }
+
+    public int prev(int v) {
+        return flipped ? rawNext(v) : rawPrev(v);
+    }
+
+    /**
+     * True if, walking forward from a, b is reached no later than c.
+     */
+    public boolean between(int a, int b, int c) {
+        if (flipped) {
+            int t = a;
+            a = c;
+            c = t;
+        }
+        long ka = key(a), kb = key(b), kc = key(c);
+        if (ka <= kc)
+            return ka <= kb && kb <= kc;
+        return kb >= ka || kb <= kc;
+    }
+
+    /**
+     * 2-opt move: with b = next(a) and d = next(c), replaces edges (a,b) and (c,d)
+     * by (a,c) and (b,d), i.e. reverses the path b..c.
+     */
+    public void flip(int a, int b, int c, int d) {
+        reverse(b, c);
+    }
+
+    /**
+     * Reverses the forward path from -> ... -> to in place.
+     */
+    public void reverse(int from, int to) {
+        if (flipped)
+            reverseRaw(to, from);
+        else
+            reverseRaw(from, to);
+    }
+
+    /**
+     * Closed tour starting and ending at {@code start}, in the solvers' List format.
+     */
+    public List<Integer> toList(int start) {
+        List<Integer> res = new ArrayList<>(n + 1);
+        int v = start;
+        for (int i = 0; i < n; i++) {
+            res.add(v);
+            v = next(v);
+        }
+        res.add(start);
+        return res;
+    }
+
+    // ---- raw (unflipped) navigation ----
+
+    private int first(int s) {
+        return segRev[s] ? order[segHi[s]] : order[segLo[s]];
+    }
+
+    private int last(int s) {
+        return segRev[s] ? order[segLo[s]] : order[segHi[s]];
+    }
+
+    private int rawNext(int v) {
+        int s = parent[v], p = pos[v];
+        if (!segRev[s])
+            return p < segHi[s] ? order[p + 1] : first(segNext[s]);
+        return p > segLo[s] ? order[p - 1] : first(segNext[s]);
+    }
+
+    private int rawPrev(int v) {
+        int s = parent[v], p = pos[v];
+        if (!segRev[s])
+            return p > segLo[s] ? order[p - 1] : last(segPrev[s]);
+        return p < segHi[s] ? order[p + 1] : last(segPrev[s]);
+    }
+
+    private int offset(int v) {
+        int s = parent[v];
+        return segRev[s] ? segHi[s] - pos[v] : pos[v] - segLo[s];
+    }
+
+    private long key(int v) {
+        return ((long) segRank[parent[v]] << 32) | offset(v);
+    }
+
+    private int segSize(int s) {
+        return segHi[s] - segLo[s] + 1;
+    }
+
+    // Number of nodes on the raw forward path x..y
+    private int pathLength(int x, int y) {
+        int sx = parent[x], sy = parent[y];
+        int ox = offset(x), oy = offset(y);
+        if (sx == sy && ox <= oy)
+            return oy - ox + 1;
+        int total = (segSize(sx) - ox) + oy + 1;
+        for (int t = segNext[sx]; t != sy; t = segNext[t])
+            total += segSize(t);
+        return total;
+    }
+
+    // ---- reversal ----
+
+    private void reverseRaw(int x, int y) {
+        int len = pathLength(x, y);
+        if (len <= 1)
+            return;
+        if (len == n) {
+            flipped = !flipped;
+            return;
+        }
+        if (2 * len > n) {
+            // Reverse the complement instead and flip the global orientation
+            int cx = rawNext(y), cy = rawPrev(x);
+            flipped = !flipped;
+            x = cx;
+            y = cy;
+            if (n - len <= 1)
+                return;
+        }
+
+        int sx = parent[x];
+        if (sx == parent[y] && offset(x) <= offset(y)) {
+            reverseInSegment(pos[x], pos[y]);
+            return;
+        }
+
+        if (segCount + 2 > maxSegments) {
+            rebuild(currentOrder());
+            sx = parent[x];
+            if (sx == parent[y] && offset(x) <= offset(y)) {
+                reverseInSegment(pos[x], pos[y]);
+                return;
+            }
+        }
+
+        splitBefore(x);
+        splitBefore(rawNext(y));
+
+        int firstSeg = parent[x], lastSeg = parent[y];
+        int before = segPrev[firstSeg], after = segNext[lastSeg];
+
+        // Relink the run firstSeg..lastSeg in reverse and flip each segment
+        int s = firstSeg;
+        while (true) {
+            int nextSeg = segNext[s];
+            int t = segNext[s];
+            segNext[s] = segPrev[s];
+            segPrev[s] = t;
+            segRev[s] = !segRev[s];
+            if (s == lastSeg)
+                break;
+            s = nextSeg;
+        }
+        segNext[before] = lastSeg;
+        segPrev[lastSeg] = before;
+        segNext[firstSeg] = after;
+        segPrev[after] = firstSeg;
+
+        renumber(before);
+    }
+
+    private void reverseInSegment(int i, int j) {
+        if (i > j) {
+            int t = i;
+            i = j;
+            j = t;
+        }
+        while (i < j) {
+            int a = order[i], b = order[j];
+            order[i] = b;
+            pos[b] = i;
+            order[j] = a;
+            pos[a] = j;
+            i++;
+            j--;
+        }
+    }
+
+    // Splits v's segment so that v becomes the first node of its segment
+    private void splitBefore(int v) {
+        int s = parent[v];
+        if (first(s) == v)
+            return;
+        int t = segCount++;
+        segRev[t] = segRev[s];
+        int p = pos[v];
+        int headLo, headHi, tailLo, tailHi;
+        if (!segRev[s]) {
+            headLo = segLo[s];
+            headHi = p - 1;
+            tailLo = p;
+            tailHi = segHi[s];
+        } else {
+            headLo = p + 1;
+            headHi = segHi[s];
+            tailLo = segLo[s];
+            tailHi = p;
+        }
+
+        // The new segment takes the tail part (v onwards) and is linked after s
+        segLo[s] = headLo;
+        segHi[s] = headHi;
+        segLo[t] = tailLo;
+        segHi[t] = tailHi;
+        for (int q = tailLo; q <= tailHi; q++)
+            parent[order[q]] = t;
+
+        int after = segNext[s];
+        segNext[s] = t;
+        segPrev[t] = s;
+        segNext[t] = after;
+        segPrev[after] = t;
+        segRank[t] = segRank[s];
+    }
+
+    private void renumber(int start) {
+        int r = 0;
+        int s = start;
+        do {
+            segRank[s] = r++;
+            s = segNext[s];
+        } while (s != start);
+    }
+
+    private int[] currentOrder() {
+        int[] res = new int[n];
+        int v = order[0];
+        for (int i = 0; i < n; i++) {
+            res[i] = v;
+            v = rawNext(v);
+        }
+        return res;
+    }
+
+    private void rebuild(int[] tourOrder) {
+        System.arraycopy(tourOrder, 0, order, 0, n);
+        segCount = 0;
+        for (int lo = 0; lo < n; lo += groupSize) {
+            int s = segCount++;
+            segLo[s] = lo;
+            segHi[s] = Math.min(n, lo + groupSize) - 1;
+            segRev[s] = false;
+            segRank[s] = s;
+            for (int q = segLo[s]; q <= segHi[s]; q++) {
+                pos[order[q]] = q;
+                parent[order[q]] = s;
+            }
+        }
+        for (int s = 0; s < segCount; s++) {
+            segNext[s] = (s + 1) % segCount;
+            segPrev[s] = (s - 1 + segCount) % segCount;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.tsp.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stand-ins for Nominatim /search and the OSRM table service, served from an
+ * embedded HTTP server for the loadtest profile. Every request waits a
+ * uniformly random 0.5x-1.5x of the configured latency and fails with HTTP 503
+ * at the configured rate, so retries and circuit breakers are exercised too.
+ * <p>
+ * Any address geocodes to a fixed point (derived from its hash) within about
+ * 10 km of central Da Nang. Table entries are straight-line distance times a
+ * road factor, driven at a constant 30 km/h.
+ */
+@Slf4j
+@Component
+@Profile("loadtest")
+public class FakeUpstreams {
+
+    private static final double CENTER_LAT = 16.0544, CENTER_LON = 108.2022;
+    private static final double SPREAD_DEG = 0.09;
+    private static final double ROAD_FACTOR = 1.3;
+    private static final double SPEED_MPS = 30 / 3.6;
+
+    @Value("${tsp.loadtest.fake-port:18090}")
+    private int port;
+
+    @Value("${tsp.loadtest.geocode-latency-ms:40}")
+    private long geocodeLatencyMs;
+
+    @Value("${tsp.loadtest.table-latency-ms:80}")
+    private long tableLatencyMs;
+
+    @Value("${tsp.loadtest.failure-rate:0.02}")
+    private double failureRate;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/search", exchange -> handle(exchange, geocodeLatencyMs, this::search));
+        server.createContext("/table/v1/driving/", exchange -> handle(exchange, tableLatencyMs, this::table));
+        // Handlers sleep to simulate latency, so every request needs its own thread
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fake-upstream");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.start();
+        log.info("Fake Nominatim/OSRM listening on port {} (latency {}/{} ms, failure rate {})", port,
+                geocodeLatencyMs, tableLatencyMs, failureRate);
+    }
+
+    @PreDestroy
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private interface Body {
+        String render(HttpExchange exchange);
+    }
+
+    private void handle(HttpExchange exchange, long latencyMs, Body body) throws IOException {
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        try {
+            Thread.sleep((long) (latencyMs * (0.5 + rand.nextDouble())));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try (exchange) {
+            if (rand.nextDouble() < failureRate) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            byte[] bytes = body.render(exchange).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private String search(HttpExchange exchange) {
+        String query = queryParam(exchange.getRequestURI().getRawQuery(), "q");
+        if (query == null)
+            return "[]";
+        int h = query.hashCode();
+        double lat = CENTER_LAT + SPREAD_DEG * ((h & 0xffff) / 65535.0 - 0.5);
+        double lon = CENTER_LON + SPREAD_DEG * (((h >>> 16) & 0xffff) / 65535.0 - 0.5);
+        return String.format(Locale.ROOT, "[{\"display_name\":\"%s\",\"lat\":\"%.6f\",\"lon\":\"%.6f\"}]",
+                query.replace("\\", "\\\\").replace("\"", "\\\""), lat, lon);
+    }
+
+    // /table/v1/driving/lon,lat;lon,lat...?sources=..&destinations=..
+    private String table(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        String[] coords = path.substring(path.lastIndexOf('/') + 1).split(";");
+        double[] lat = new double[coords.length], lon = new double[coords.length];
+        for (int i = 0; i < coords.length; i++) {
+            String[] c = coords[i].split(",");
+            lon[i] = Double.parseDouble(c[0]);
+            lat[i] = Double.parseDouble(c[1]);
+        }
+        String query = exchange.getRequestURI().getRawQuery();
+        int[] sources = indices(queryParam(query, "sources"), coords.length);
+        int[] destinations = indices(queryParam(query, "destinations"), coords.length);
+
+        StringBuilder distances = new StringBuilder("[");
+        StringBuilder durations = new StringBuilder("[");
+        for (int s = 0; s < sources.length; s++) {
+            distances.append(s > 0 ? ",[" : "[");
+            durations.append(s > 0 ? ",[" : "[");
+            for (int d = 0; d < destinations.length; d++) {
+                double m = ROAD_FACTOR * haversine(lat[sources[s]], lon[sources[s]],
+                        lat[destinations[d]], lon[destinations[d]]);
+                if (d > 0) {
+                    distances.append(',');
+                    durations.append(',');
+                }
+                distances.append(Math.round(m * 10) / 10.0);
+                durations.append(Math.round(m / SPEED_MPS * 10) / 10.0);
+            }
+            distances.append(']');
+            durations.append(']');
+        }
+        return "{\"code\":\"Ok\",\"distances\":" + distances + "],\"durations\":" + durations + "]}";
+    }
+
+    private static int[] indices(String list, int all) {
+        if (list == null || list.equals("all")) {
+            int[] res = new int[all];
+            for (int i = 0; i < all; i++)
+                res[i] = i;
+            return res;
+        }
+        String[] parts = list.split(";");
+        int[] res = new int[parts.length];
+        for (int i = 0; i < parts.length; i++)
+            res[i] = Integer.parseInt(parts[i]);
+        return res;
+    }
+
+    private static String queryParam(String rawQuery, String name) {
+        if (rawQuery == null)
+            return null;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name))
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+        }
+        return null;
+    }
+
+    private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1), dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(lat1))
+                * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * 6_371_000 * Math.asin(Math.sqrt(a));
+    }
+}
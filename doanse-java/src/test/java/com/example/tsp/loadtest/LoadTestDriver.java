@@ -0,0 +1,271 @@
+package com.example.tsp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Drives traffic against this instance once it is up (loadtest profile, with
+ * {@link FakeUpstreams} standing in for Nominatim and OSRM). Lives in the test
+ * sources so it never ships in the application jar; run it with
+ * {@code mvn spring-boot:test-run -Dspring-boot.run.profiles=loadtest}.
+ * <p>
+ * Each simulated user repeatedly solves a route of random stops through
+ * /api/solve and then reroutes it around its first leg through /api/reroute,
+ * like a driver hitting a closed road. A share of the iterations instead posts
+ * several routes to /api/batch or one route as CSV to /api/upload; those count
+ * as an error when any NDJSON line carries one. Stops are drawn from a fixed
+ * pool of addresses. When the run ends, client-side latency per endpoint and
+ * the server's own tsp.* timers (geocoding, matrix, solver, request) are logged
+ * as count, throughput and p50/p99.
+ */
+@Slf4j
+@Component
+@Profile("loadtest")
+@RequiredArgsConstructor
+public class LoadTestDriver implements ApplicationRunner {
+
+    private static final String[] STAGE_METERS = { "tsp.geocode.query", "tsp.routing.attempt", "tsp.solver.run",
+            "tsp.request" };
+
+    private final MeterRegistry registry;
+    private final ObjectMapper objectMapper;
+    private final Environment environment;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${tsp.loadtest.users:16}")
+    private int users;
+
+    @Value("${tsp.loadtest.duration-s:60}")
+    private long durationS;
+
+    @Value("${tsp.loadtest.stops:25}")
+    private int stops;
+
+    @Value("${tsp.loadtest.address-pool:5000}")
+    private int addressPool;
+
+    @Value("${tsp.loadtest.mode:distance}")
+    private String mode;
+
+    @Value("${tsp.loadtest.batch-share:0.1}")
+    private double batchShare;
+
+    @Value("${tsp.loadtest.batch-problems:4}")
+    private int batchProblems;
+
+    @Value("${tsp.loadtest.upload-share:0.1}")
+    private double uploadShare;
+
+    @Value("${tsp.loadtest.exit-when-done:true}")
+    private boolean exitWhenDone;
+
+    private final Map<String, List<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        String base = "http://localhost:" + environment.getProperty("local.server.port");
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        log.info("Load test: {} users for {} s, {} stops per route, mode {}, {}% batch, {}% upload", users,
+                durationS, stops, mode, Math.round(batchShare * 100), Math.round(uploadShare * 100));
+
+        long startNs = System.nanoTime();
+        long deadline = startNs + TimeUnit.SECONDS.toNanos(durationS);
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        List<Future<?>> running = new ArrayList<>();
+        for (int u = 0; u < users; u++)
+            running.add(pool.submit(() -> user(client, base, deadline)));
+        for (Future<?> f : running)
+            f.get();
+        pool.shutdown();
+
+        report((System.nanoTime() - startNs) / 1e9);
+        if (exitWhenDone)
+            System.exit(SpringApplication.exit(context, () -> 0));
+    }
+
+    private void user(HttpClient client, String base, long deadline) {
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            double r = rand.nextDouble();
+            if (r < batchShare)
+                batch(client, base, rand);
+            else if (r < batchShare + uploadShare)
+                upload(client, base, rand);
+            else
+                solveAndReroute(client, base, rand);
+        }
+    }
+
+    private void solveAndReroute(HttpClient client, String base, ThreadLocalRandom rand) {
+        JsonNode solved = call(client, base + "/api/solve", "/api/solve", problem(null, rand));
+        if (solved == null || !solved.hasNonNull("stops_id") || solved.path("tour").size() < 3)
+            return;
+        JsonNode tour = solved.get("tour");
+        call(client, base + "/api/reroute", "/api/reroute", Map.of(
+                "stops_id", solved.get("stops_id").asText(),
+                "avoid", List.of(tour.get(0).asInt(), tour.get(1).asInt())));
+    }
+
+    private void batch(HttpClient client, String base, ThreadLocalRandom rand) {
+        List<Map<String, Object>> problems = new ArrayList<>();
+        for (int p = 0; p < batchProblems; p++)
+            problems.add(problem("p" + p, rand));
+        try {
+            stream(client, "/api/batch", HttpRequest.newBuilder(URI.create(base + "/api/batch"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(problems))));
+        } catch (Exception e) {
+            errors.computeIfAbsent("/api/batch", k -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    private void upload(HttpClient client, String base, ThreadLocalRandom rand) {
+        StringBuilder csv = new StringBuilder("address\n");
+        for (int i = 0; i < stops; i++)
+            csv.append(address(rand)).append('\n');
+        String url = base + "/api/upload?mode=" + mode + "&warehouse_address="
+                + URLEncoder.encode(address(rand), StandardCharsets.UTF_8);
+        stream(client, "/api/upload", HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "text/csv")
+                .POST(HttpRequest.BodyPublishers.ofString(csv.toString())));
+    }
+
+    private Map<String, Object> problem(String id, ThreadLocalRandom rand) {
+        Map<String, Object> problem = new LinkedHashMap<>();
+        if (id != null)
+            problem.put("id", id);
+        problem.put("kho_hang", address(rand));
+        List<Map<String, String>> points = new ArrayList<>();
+        for (int i = 0; i < stops; i++)
+            points.add(Map.of("address", address(rand)));
+        problem.put("cac_diem_giao", points);
+        problem.put("mode", mode);
+        return problem;
+    }
+
+    private String address(ThreadLocalRandom rand) {
+        return "Load test stop " + rand.nextInt(addressPool);
+    }
+
+    // Records latency; returns the JSON body, or null on any failure
+    private JsonNode call(HttpClient client, String url, String endpoint, Object body) {
+        long start = System.nanoTime();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(Duration.ofSeconds(60))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            latencies.computeIfAbsent(endpoint, k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(System.nanoTime() - start);
+            JsonNode json = objectMapper.readTree(response.body());
+            if (response.statusCode() / 100 != 2 || json.hasNonNull("error")) {
+                errors.computeIfAbsent(endpoint, k -> new AtomicLong()).incrementAndGet();
+                return null;
+            }
+            return json;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            errors.computeIfAbsent(endpoint, k -> new AtomicLong()).incrementAndGet();
+            return null;
+        }
+    }
+
+    // NDJSON endpoints: latency runs until the last line; one error per failed request
+    private void stream(HttpClient client, String endpoint, HttpRequest.Builder request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request.timeout(Duration.ofSeconds(120)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            latencies.computeIfAbsent(endpoint, k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(System.nanoTime() - start);
+            boolean failed = response.statusCode() / 100 != 2;
+            for (String line : response.body().split("\n")) {
+                if (!line.isBlank() && objectMapper.readTree(line).hasNonNull("error"))
+                    failed = true;
+            }
+            if (failed)
+                errors.computeIfAbsent(endpoint, k -> new AtomicLong()).incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            errors.computeIfAbsent(endpoint, k -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    private void report(double elapsedS) {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                "%nLoad test finished after %.1f s%n%-60s %8s %8s %9s %9s %7s%n", elapsedS,
+                "stage", "count", "rate/s", "p50 ms", "p99 ms", "errors"));
+
+        for (Map.Entry<String, List<Long>> e : new TreeMap<>(latencies).entrySet()) {
+            long[] sorted;
+            synchronized (e.getValue()) {
+                sorted = e.getValue().stream().mapToLong(Long::longValue).sorted().toArray();
+            }
+            long errorCount = errors.getOrDefault(e.getKey(), new AtomicLong()).get();
+            sb.append(String.format(Locale.ROOT, "%-60s %8d %8.1f %9.1f %9.1f %7d%n", "client " + e.getKey(),
+                    sorted.length, sorted.length / elapsedS, percentile(sorted, 0.5) / 1e6,
+                    percentile(sorted, 0.99) / 1e6, errorCount));
+        }
+
+        // Server-side percentiles come from the timers' own windows (see management.metrics.* in the profile)
+        for (String name : STAGE_METERS) {
+            for (Timer timer : registry.find(name).timers()) {
+                HistogramSnapshot snapshot = timer.takeSnapshot();
+                if (snapshot.count() == 0)
+                    continue;
+                String tags = timer.getId().getTags().stream().map(t -> t.getKey() + "=" + t.getValue())
+                        .collect(Collectors.joining(","));
+                sb.append(String.format(Locale.ROOT, "%-60s %8d %8.1f %9.1f %9.1f %7s%n", name + " [" + tags + "]",
+                        snapshot.count(), snapshot.count() / elapsedS,
+                        percentile(snapshot, 0.5), percentile(snapshot, 0.99), "-"));
+            }
+        }
+        log.info(sb.toString());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0)
+            return 0;
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static double percentile(HistogramSnapshot snapshot, double p) {
+        for (ValueAtPercentile v : snapshot.percentileValues()) {
+            if (Math.abs(v.percentile() - p) < 1e-9)
+                return v.value(TimeUnit.MILLISECONDS);
+        }
+        return Double.NaN;
+    }
+}